@@ -14,6 +14,62 @@ public abstract class AbstractNode implements Node {
 	 * The size of the number of nodes below this node
 	 */
 	protected final int SIZE = 1;
+	/**
+	 * The size of the subtree rooted at this node, -1 when it has to be computed again
+	 */
+	private int subtreeSize = -1;
+	
+	@Override
+	public int size() {
+		int s = subtreeSize;
+		if (s < 0) {
+			s = computeSize();
+			subtreeSize = s;
+		}
+		return s;
+	}
+	
+	/**
+	 * Computes the size of the subtree rooted at this node from the sizes of its children
+	 */
+	protected abstract int computeSize();
+	
+	/**
+	 * Forgets the cached size and text of this node and of all its ancestors, to be
+	 * called after a child of this node is added, removed or replaced
+	 */
+	protected void sizeChanged() {
+		Node n = this;
+		while (n instanceof AbstractNode) {
+			((AbstractNode) n).subtreeSize = -1;
+			((AbstractNode) n).forgetText();
+			if (n instanceof ProgramImpl) {
+				return;
+			}
+			n = n.getParent();
+		}
+	}
+	
+	/**
+	 * Forgets the cached sizes and text in the subtree rooted at this node, whose nodes
+	 * may have been changed in place
+	 */
+	void forgetSizes() {
+		subtreeSize = -1;
+		forgetText();
+	}
+	
+	/**
+	 * Forgets the text of this node, for the nodes that keep it after printing it
+	 */
+	void forgetText() {
+	}
+	
+	static void forgetSizes(Node n) {
+		if (n instanceof AbstractNode) {
+			((AbstractNode) n).forgetSizes();
+		}
+	}
 	
 	
 	@Override
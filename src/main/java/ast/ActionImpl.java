@@ -62,11 +62,17 @@ public class ActionImpl extends AbstractNode implements Action{
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		if (e == null)
 			return SIZE;
 		return e.size() + SIZE;
 	}
+
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(e);
+	}
 	
 	@Override
 	public Node nodeAt(int index) {
@@ -82,10 +82,17 @@ public class BinaryCondition extends AbstractNode implements Condition {
 
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		return x.size() + y.size() + SIZE;
 	}
 
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(x);
+		forgetSizes(y);
+	}
+
 	@Override
 	public Node nodeAt(int index) {
 		Node n = super.nodeAt(index);
@@ -1,8 +1,27 @@
 package ast;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class DuplicateMutation implements Mutation{
+	/**
+	 * Source of the random choices made by this mutation
+	 */
+	private final SplittableRandom rand;
+
+	/**
+	 * Creates a mutation that makes its random choices from an unseeded stream
+	 */
+	public DuplicateMutation() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a mutation that makes its random choices from {@code rand}
+	 */
+	public DuplicateMutation(SplittableRandom rand) {
+		this.rand = rand;
+	}
+
 
 	@Override
 	public boolean equals(Mutation m) {
@@ -14,9 +33,8 @@ public class DuplicateMutation implements Mutation{
 	public boolean mutate(ProgramImpl n) {
 		if (n.numRules() == 0)
 			return false;
-		Random r = new Random();
-		r.nextInt(n.numRules());
-		Rule rule = n.get(r.nextInt(n.numRules()));
+		rand.nextInt(n.numRules());
+		Rule rule = n.get(rand.nextInt(n.numRules()));
 		n.add(rule.clone());
 		return true;
 	}
@@ -25,9 +43,8 @@ public class DuplicateMutation implements Mutation{
 	public boolean mutate(Rule n) {
 		if (n.numberOfUpdates() == 0)
 			return false;
-		Random r = new Random();
-		r.nextInt(n.numberOfUpdates());
-		Update up = n.getUpdate(r.nextInt(n.numberOfUpdates()));
+		rand.nextInt(n.numberOfUpdates());
+		Update up = n.getUpdate(rand.nextInt(n.numberOfUpdates()));
 		n.addUpdate(up.clone());
 		return true;
 	}
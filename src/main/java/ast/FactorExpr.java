@@ -92,9 +92,16 @@ public class FactorExpr extends AbstractNode implements Expr{
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		return x.size() + y.size() + SIZE;
 	}
+
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(x);
+		forgetSizes(y);
+	}
 	
 	@Override
 	public Node nodeAt(int index) {
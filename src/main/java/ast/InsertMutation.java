@@ -1,6 +1,6 @@
 package ast;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import ast.SensorExpr.SensorType;
 
@@ -12,6 +12,25 @@ import ast.SensorExpr.SensorType;
  *
  */
 public class InsertMutation implements Mutation{
+	/**
+	 * Source of the random choices made by this mutation
+	 */
+	private final SplittableRandom rand;
+
+	/**
+	 * Creates a mutation that makes its random choices from an unseeded stream
+	 */
+	public InsertMutation() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a mutation that makes its random choices from {@code rand}
+	 */
+	public InsertMutation(SplittableRandom rand) {
+		this.rand = rand;
+	}
+
 	
 	/**
 	 * Goes backwards in the Ast to the ProgramImpl node and chooses a random expression
@@ -30,11 +49,10 @@ public class InsertMutation implements Mutation{
 		}	while (!(parent instanceof ProgramImpl));
 		
 		int i = parent.size();
-		Random r = new Random();
 		Node node;
 		
 		do {
-			node = parent.nodeAt(r.nextInt(i));
+			node = parent.nodeAt(rand.nextInt(i));
 		}
 		while (!(node instanceof Expr) && (node != n));
 		return (Expr) node.clone();
@@ -55,11 +73,10 @@ public class InsertMutation implements Mutation{
 		while (!(parent instanceof ProgramImpl));
 		
 		int i = parent.size();
-		Random r = new Random();
 		Node node;
 		
 		do {
-			node = parent.nodeAt(r.nextInt(i));
+			node = parent.nodeAt(rand.nextInt(i));
 		}
 		while (!(node instanceof Condition) || (node == n));
 		return (Condition) node.clone();
@@ -73,17 +90,16 @@ public class InsertMutation implements Mutation{
 	 * @return - the new node
 	 */
 	private Expr chooseRandExpr(Expr n) {
-		Random r = new Random();
-		switch(r.nextInt(4)) {
+		switch(rand.nextInt(4)) {
 		case 0:
-			switch(r.nextInt(2)) {
+			switch(rand.nextInt(2)) {
 			case 0:
 				return new TermExpr(n, TermExpr.Operator.MINUS, copyRandExpr(n));
 			case 1:
 				return new TermExpr(n, TermExpr.Operator.PLUS, copyRandExpr(n));
 			}
 		case 1:
-			switch(r.nextInt(3)) {
+			switch(rand.nextInt(3)) {
 			case 0:
 				return new FactorExpr(n, FactorExpr.Operator.MUL, copyRandExpr(n));
 			case 1:
@@ -92,7 +108,7 @@ public class InsertMutation implements Mutation{
 				return new FactorExpr(n, FactorExpr.Operator.MOD, copyRandExpr(n));
 			}
 		case 2:
-			switch(r.nextInt(3)) {
+			switch(rand.nextInt(3)) {
 			case 0:
 				return new SensorExpr(n, SensorType.AHEAD);
 			case 1:
@@ -114,8 +130,7 @@ public class InsertMutation implements Mutation{
 	 * @return - the new node
 	 */
 	private Condition chooseRandCondition(Condition n) {
-		Random r = new Random();
-		switch(r.nextInt(2)) {
+		switch(rand.nextInt(2)) {
 		case 0:
 			return new BinaryCondition(n, BinaryCondition.Operator.AND, copyRandCondition(n));
 		case 1:
@@ -74,11 +74,17 @@ public class MemExpr extends AbstractNode implements Expr{
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		if (x == null)
 			return SIZE;
 		return x.size() + SIZE;
 	}
+
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(x);
+	}
 	@Override
 	public Node nodeAt(int index) {
 		Node n = super.nodeAt(index); 
@@ -1,31 +1,58 @@
 package ast;
 
+import java.util.SplittableRandom;
+
 /**
  * A factory that produces the public static Mutation objects corresponding to
- * each mutation
+ * each mutation. The overloads taking a {@code SplittableRandom} produce mutations
+ * that make their random choices from that stream.
  */
 public class MutationFactory {
    public static Mutation getRemove() {
       return new RemoveMutation();
    }
 
+   public static Mutation getRemove(SplittableRandom rand) {
+      return new RemoveMutation();
+   }
+
    public static Mutation getSwap() {
       return new SwapMutation();
    }
 
+   public static Mutation getSwap(SplittableRandom rand) {
+      return new SwapMutation(rand);
+   }
+
    public static Mutation getReplace() {
       return new ReplaceMutation();
    }
 
+   public static Mutation getReplace(SplittableRandom rand) {
+      return new ReplaceMutation(rand);
+   }
+
    public static Mutation getTransform() {
       return new TransformMutation();
    }
 
+   public static Mutation getTransform(SplittableRandom rand) {
+      return new TransformMutation(rand);
+   }
+
    public static Mutation getInsert() {
       return new InsertMutation();
    }
 
+   public static Mutation getInsert(SplittableRandom rand) {
+      return new InsertMutation(rand);
+   }
+
    public static Mutation getDuplicate() {
       return new DuplicateMutation();
    }
+
+   public static Mutation getDuplicate(SplittableRandom rand) {
+      return new DuplicateMutation(rand);
+   }
 }
@@ -26,7 +26,7 @@ public class NumExpr extends AbstractNode implements Expr{
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		return SIZE;
 	}
 	@Override
@@ -0,0 +1,143 @@
+package ast;
+
+/**
+ * Copies a program for a change to one of its nodes without copying all of it. The nodes
+ * on the path from the root to the changed node are copied, the changed node is cloned
+ * together with its descendants, which mutations may change as well, and every other
+ * subtree is shared with the original program.
+ * <p>
+ * Shared subtrees keep the original nodes as their parents, so the original program stays
+ * intact. Only the nodes on the copied path have parents in the copy, which is all a
+ * mutation of the changed node looks at.
+ */
+final class PathCopy {
+
+	private PathCopy() {
+	}
+
+	/**
+	 * Returns a copy of {@code p} in which the node at {@code index}, in the order of
+	 * {@link Node#nodeAt(int)}, may be changed. That node of the copy is stored in
+	 * {@code target[0]}.
+	 */
+	static ProgramImpl copy(ProgramImpl p, int index, Node[] target) {
+		ProgramImpl copy = new ProgramImpl();
+		if (index == 0) {
+			copy.ruleNodes.addAll(p.ruleNodes);
+			target[0] = copy;
+			return copy;
+		}
+		int i = index - 1;
+		for (Rule r : p.ruleNodes) {
+			if (i >= 0 && i < r.size()) {
+				Rule c = (Rule) copy(r, i, target);
+				c.setParent(copy);
+				copy.ruleNodes.add(c);
+			}
+			else {
+				copy.ruleNodes.add(r);
+			}
+			i -= r.size();
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of {@code n} in which the node at {@code index} below it may be changed
+	 */
+	private static Node copy(Node n, int index, Node[] target) {
+		if (index == 0) {
+			Node c = n.clone();
+			target[0] = c;
+			return c;
+		}
+		int i = index - 1;
+		if (n instanceof Rule) {
+			Rule r = (Rule) n;
+			Condition c = r.getCondition();
+			Rule copy = new Rule((Condition) pick(c, i, target));
+			i -= c.size();
+			c.setParent(r);
+			for (int u = 0; u < r.numberOfUpdates(); u++) {
+				Update up = r.getUpdate(u);
+				copy.addUpdate((Update) pick(up, i, target));
+				i -= up.size();
+				up.setParent(r);
+			}
+			if (r.actionExists()) {
+				Action a = r.getAction();
+				copy.setAction((Action) pick(a, i, target));
+				a.setParent(r);
+			}
+			return copy;
+		}
+		if (n instanceof BinaryCondition) {
+			BinaryCondition b = (BinaryCondition) n;
+			BinaryCondition copy = new BinaryCondition((Condition) pick(b.x, i, target), b.op,
+					(Condition) pick(b.y, i - b.x.size(), target));
+			return restore(copy, b, b.x, b.y);
+		}
+		if (n instanceof RelationCondition) {
+			RelationCondition r = (RelationCondition) n;
+			RelationCondition copy = new RelationCondition((Expr) pick(r.x, i, target), r.rel,
+					(Expr) pick(r.y, i - r.x.size(), target));
+			return restore(copy, r, r.x, r.y);
+		}
+		if (n instanceof TermExpr) {
+			TermExpr t = (TermExpr) n;
+			TermExpr copy = new TermExpr((Expr) pick(t.x, i, target), t.rel,
+					(Expr) pick(t.y, i - t.x.size(), target));
+			return restore(copy, t, t.x, t.y);
+		}
+		if (n instanceof FactorExpr) {
+			FactorExpr f = (FactorExpr) n;
+			FactorExpr copy = new FactorExpr((Expr) pick(f.x, i, target), f.op,
+					(Expr) pick(f.y, i - f.x.size(), target));
+			return restore(copy, f, f.x, f.y);
+		}
+		if (n instanceof UpdateImpl) {
+			UpdateImpl u = (UpdateImpl) n;
+			UpdateImpl copy = new UpdateImpl((Expr) pick(u.x, i, target), (Expr) pick(u.y, i - u.x.size(), target));
+			return restore(copy, u, u.x, u.y);
+		}
+		if (n instanceof UnaryExpr) {
+			UnaryExpr u = (UnaryExpr) n;
+			return restore(new UnaryExpr((Expr) pick(u.x, i, target)), u, u.x);
+		}
+		if (n instanceof MemExpr) {
+			MemExpr m = (MemExpr) n;
+			return restore(new MemExpr((Expr) pick(m.x, i, target)), m, m.x);
+		}
+		if (n instanceof SensorExpr) {
+			SensorExpr s = (SensorExpr) n;
+			return restore(new SensorExpr((Expr) pick(s.x, i, target), s.type), s, s.x);
+		}
+		if (n instanceof ActionImpl) {
+			ActionImpl a = (ActionImpl) n;
+			return restore(new ActionImpl(a.action, (Expr) pick(a.e, i, target)), a, a.e);
+		}
+		throw new IllegalArgumentException();
+	}
+
+	/**
+	 * Returns the copy of {@code child} toward the node at {@code index} if that node is
+	 * in it, or else {@code child} itself to be shared
+	 */
+	private static Node pick(Node child, int index, Node[] target) {
+		if (index >= 0 && index < child.size()) {
+			return copy(child, index, target);
+		}
+		return child;
+	}
+
+	/**
+	 * Gives the {@code children} of {@code original} back their parent after they were
+	 * handed to the constructor of {@code copy}
+	 */
+	private static Node restore(Node copy, Node original, Node... children) {
+		for (Node c : children) {
+			c.setParent(original);
+		}
+		return copy;
+	}
+}
@@ -1,5 +1,7 @@
 package ast;
 
+import java.util.SplittableRandom;
+
 /**
  * An abstraction of a critter program.
  */
@@ -11,6 +13,14 @@ public interface Program extends Node {
     */
    Program mutate();
 
+   /**
+    * Mutates this program with a single mutation, making every random choice
+    * from {@code rand}
+    * 
+    * @return The root of the mutated AST
+    */
+   Program mutate(SplittableRandom rand);
+
    /**
     * Mutates {@code nodeAt(index)} (and not its children) with mutation
     * {@code m}.
@@ -56,6 +66,12 @@ public interface Program extends Node {
     * @return The index of the rule in the rule list
     */
    int getIndexOf(Rule rule);
+
+   /**
+    * Returns a hash of the printed text of this program, which programs with the same
+    * text share and which can be used in a URL
+    */
+   String hash();
    
    
 }
@@ -0,0 +1,405 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ast.ActionImpl.Actions;
+import ast.MemExpr.MemSugar;
+import ast.SensorExpr.SensorType;
+
+/**
+ * A compact binary encoding of programs, for storing them and sending them between the
+ * server and clients without printing and parsing them.
+ * <p>
+ * An encoding starts with {@link #MAGIC} and the version of the format. Then comes each
+ * node of the program in post-order, children before their parent, as one byte: the type
+ * of node in the low four bits and its operand in the high four bits. An operand too
+ * large for them, marked by all four bits set, follows as an unsigned varint of 7 bits per
+ * byte. Numbers are zigzag-encoded so that small negative numbers stay short. The program
+ * node comes last. Neither encoding nor decoding recurses, so programs of any depth can be
+ * encoded and decoded.
+ * <p>
+ * A decoded program has the same structure as the encoded one, and so prints the same.
+ */
+public final class ProgramCodec {
+	/**
+	 * The first bytes of every encoding
+	 */
+	public static final byte[] MAGIC = {'C', 'W', 'P'};
+	/**
+	 * The version of the format written by {@link #encode(Program)}
+	 */
+	public static final int VERSION = 1;
+
+	// Node types, below 16. Operands are listed after each one; children are on the stack.
+	/** value, zigzag-encoded */
+	private static final int NUM = 1;
+	/** child: the address */
+	private static final int MEM = 2;
+	/** sugar ordinal * 2 + 1 if an address follows on the stack */
+	private static final int MEM_SUGAR = 3;
+	/** child: the negated expression */
+	private static final int UNARY = 4;
+	/** sensor ordinal * 2 + 1 if the sensor has an expression */
+	private static final int SENSOR = 5;
+	/** operator ordinal; children: left, right */
+	private static final int TERM = 6;
+	/** operator ordinal; children: left, right */
+	private static final int FACTOR = 7;
+	/** operator ordinal; children: left, right */
+	private static final int RELATION = 8;
+	/** operator ordinal; children: left, right */
+	private static final int BINARY = 9;
+	/** children: address, value */
+	private static final int UPDATE = 10;
+	/** action ordinal * 2 + 1 if the action has an expression */
+	private static final int ACTION = 11;
+	/** number of updates * 2 + 1 if there is an action; children: condition, updates, action */
+	private static final int RULE = 12;
+	/** number of rules; children: the rules */
+	private static final int PROGRAM = 13;
+
+	/**
+	 * The high four bits of a node that is followed by its operand
+	 */
+	private static final int INLINE_LIMIT = 15;
+
+	private ProgramCodec() {
+	}
+
+	/**
+	 * Returns the encoding of {@code p}
+	 */
+	public static byte[] encode(Program p) {
+		Writer w = new Writer();
+		for (byte b : MAGIC) {
+			w.bytes[w.length++] = b;
+		}
+		w.varint(VERSION);
+		// The reverse of a pre-order walk that visits children from the last to the first
+		// is the post-order of the program, children from the first to the last
+		List<Node> order = new ArrayList<Node>();
+		List<Node> stack = new ArrayList<Node>();
+		int rules = p.numberOfRules();
+		for (int i = 0; i < rules; i++) {
+			stack.add(p.get(i));
+		}
+		while (!stack.isEmpty()) {
+			Node n = stack.remove(stack.size() - 1);
+			order.add(n);
+			addChildren(n, stack);
+		}
+		for (int i = order.size() - 1; i >= 0; i--) {
+			encode(order.get(i), w);
+		}
+		w.node(PROGRAM, rules);
+		return Arrays.copyOf(w.bytes, w.length);
+	}
+
+	/**
+	 * Returns the program encoded in {@code bytes}
+	 *
+	 * @throws IllegalArgumentException
+	 *             if {@code bytes} is not an encoding of a program in a known version
+	 */
+	public static Program decode(byte[] bytes) {
+		Reader r = new Reader(bytes);
+		for (byte b : MAGIC) {
+			if (r.pos >= bytes.length || bytes[r.pos++] != b) {
+				throw new IllegalArgumentException("Not an encoded program");
+			}
+		}
+		int version = r.varint();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unknown program encoding version " + version);
+		}
+		List<Node> stack = new ArrayList<Node>();
+		try {
+			while (true) {
+				int b = r.next();
+				int type = b & 0x0F;
+				int operand = b >>> 4 == INLINE_LIMIT ? r.varint() : b >>> 4;
+				Node n;
+				switch (type) {
+				case NUM:
+					n = new NumExpr((operand >>> 1) ^ -(operand & 1));
+					break;
+				case MEM:
+					n = new MemExpr((Expr) pop(stack));
+					break;
+				case MEM_SUGAR: {
+					MemExpr m = new MemExpr(MemSugar.values()[operand >>> 1]);
+					if ((operand & 1) != 0) {
+						m.x = (Expr) pop(stack);
+						m.x.setParent(m);
+					}
+					n = m;
+					break;
+				}
+				case UNARY:
+					n = new UnaryExpr((Expr) pop(stack));
+					break;
+				case SENSOR: {
+					SensorType sensor = SensorType.values()[operand >>> 1];
+					if ((operand & 1) != 0) {
+						n = new SensorExpr((Expr) pop(stack), sensor);
+					}
+					else {
+						SensorExpr s = new SensorExpr(SensorType.SMELL);
+						s.type = sensor;
+						n = s;
+					}
+					break;
+				}
+				case TERM: {
+					Expr y = (Expr) pop(stack);
+					n = new TermExpr((Expr) pop(stack), TermExpr.Operator.values()[operand], y);
+					break;
+				}
+				case FACTOR: {
+					Expr y = (Expr) pop(stack);
+					n = new FactorExpr((Expr) pop(stack), FactorExpr.Operator.values()[operand], y);
+					break;
+				}
+				case RELATION: {
+					Expr y = (Expr) pop(stack);
+					n = new RelationCondition((Expr) pop(stack), RelationCondition.Operator.values()[operand], y);
+					break;
+				}
+				case BINARY: {
+					Condition y = (Condition) pop(stack);
+					n = new BinaryCondition((Condition) pop(stack), BinaryCondition.Operator.values()[operand], y);
+					break;
+				}
+				case UPDATE: {
+					Expr y = (Expr) pop(stack);
+					n = new UpdateImpl((Expr) pop(stack), y);
+					break;
+				}
+				case ACTION: {
+					Actions action = Actions.values()[operand >>> 1];
+					ActionImpl a = new ActionImpl(action);
+					if ((operand & 1) != 0) {
+						a.e = (Expr) pop(stack);
+						a.e.setParent(a);
+					}
+					n = a;
+					break;
+				}
+				case RULE: {
+					// A condition, the updates and the action must be on the stack
+					if ((long) (operand >>> 1) + (operand & 1) + 1 > stack.size()) {
+						throw new IllegalArgumentException("Malformed program encoding");
+					}
+					Action a = (operand & 1) != 0 ? (Action) pop(stack) : null;
+					Update[] updates = new Update[operand >>> 1];
+					for (int i = updates.length - 1; i >= 0; i--) {
+						updates[i] = (Update) pop(stack);
+					}
+					Rule rule = new Rule((Condition) pop(stack));
+					for (Update u : updates) {
+						rule.addUpdate(u);
+					}
+					if (a != null) {
+						rule.setAction(a);
+					}
+					n = rule;
+					break;
+				}
+				case PROGRAM: {
+					if (stack.size() != operand || r.pos != bytes.length) {
+						throw new IllegalArgumentException("Malformed program encoding");
+					}
+					ProgramImpl p = new ProgramImpl();
+					for (Node rule : stack) {
+						p.add((Rule) rule);
+					}
+					return p;
+				}
+				default:
+					throw new IllegalArgumentException("Unknown node type " + type);
+				}
+				stack.add(n);
+			}
+		} catch (ClassCastException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Malformed program encoding", e);
+		}
+	}
+
+	/**
+	 * Adds the children of {@code n} to {@code stack}, in the order they are encoded
+	 */
+	private static void addChildren(Node n, List<Node> stack) {
+		if (n instanceof MemExpr) {
+			addChild(((MemExpr) n).x, stack);
+		}
+		else if (n instanceof UnaryExpr) {
+			addChild(((UnaryExpr) n).x, stack);
+		}
+		else if (n instanceof SensorExpr) {
+			addChild(((SensorExpr) n).x, stack);
+		}
+		else if (n instanceof TermExpr) {
+			addChild(((TermExpr) n).x, stack);
+			addChild(((TermExpr) n).y, stack);
+		}
+		else if (n instanceof FactorExpr) {
+			addChild(((FactorExpr) n).x, stack);
+			addChild(((FactorExpr) n).y, stack);
+		}
+		else if (n instanceof RelationCondition) {
+			addChild(((RelationCondition) n).x, stack);
+			addChild(((RelationCondition) n).y, stack);
+		}
+		else if (n instanceof BinaryCondition) {
+			addChild(((BinaryCondition) n).x, stack);
+			addChild(((BinaryCondition) n).y, stack);
+		}
+		else if (n instanceof UpdateImpl) {
+			addChild(((UpdateImpl) n).x, stack);
+			addChild(((UpdateImpl) n).y, stack);
+		}
+		else if (n instanceof ActionImpl) {
+			addChild(((ActionImpl) n).e, stack);
+		}
+		else if (n instanceof Rule) {
+			Rule r = (Rule) n;
+			addChild(r.getCondition(), stack);
+			for (int i = 0; i < r.numberOfUpdates(); i++) {
+				addChild(r.getUpdate(i), stack);
+			}
+			if (r.actionExists()) {
+				addChild(r.getAction(), stack);
+			}
+		}
+	}
+
+	private static void addChild(Node child, List<Node> stack) {
+		if (child != null) {
+			stack.add(child);
+		}
+	}
+
+	/**
+	 * Writes {@code n} itself, its children having been written before it
+	 */
+	private static void encode(Node n, Writer w) {
+		if (n instanceof NumExpr) {
+			int v = ((NumExpr) n).value;
+			w.node(NUM, (v << 1) ^ (v >> 31));
+		}
+		else if (n instanceof MemExpr) {
+			MemExpr m = (MemExpr) n;
+			if (m.type == null) {
+				w.node(MEM, 0);
+			}
+			else {
+				w.node(MEM_SUGAR, m.type.ordinal() * 2 + (m.x != null ? 1 : 0));
+			}
+		}
+		else if (n instanceof UnaryExpr) {
+			w.node(UNARY, 0);
+		}
+		else if (n instanceof SensorExpr) {
+			SensorExpr s = (SensorExpr) n;
+			w.node(SENSOR, s.type.ordinal() * 2 + (s.x != null ? 1 : 0));
+		}
+		else if (n instanceof TermExpr) {
+			w.node(TERM, ((TermExpr) n).rel.ordinal());
+		}
+		else if (n instanceof FactorExpr) {
+			w.node(FACTOR, ((FactorExpr) n).op.ordinal());
+		}
+		else if (n instanceof RelationCondition) {
+			w.node(RELATION, ((RelationCondition) n).rel.ordinal());
+		}
+		else if (n instanceof BinaryCondition) {
+			w.node(BINARY, ((BinaryCondition) n).op.ordinal());
+		}
+		else if (n instanceof UpdateImpl) {
+			w.node(UPDATE, 0);
+		}
+		else if (n instanceof ActionImpl) {
+			ActionImpl a = (ActionImpl) n;
+			w.node(ACTION, a.action.ordinal() * 2 + (a.e != null ? 1 : 0));
+		}
+		else if (n instanceof Rule) {
+			Rule r = (Rule) n;
+			w.node(RULE, r.numberOfUpdates() * 2 + (r.actionExists() ? 1 : 0));
+		}
+		else {
+			throw new IllegalArgumentException("Cannot encode " + n.getClass().getName());
+		}
+	}
+
+	private static Node pop(List<Node> stack) {
+		if (stack.isEmpty()) {
+			throw new IllegalArgumentException("Malformed program encoding");
+		}
+		return stack.remove(stack.size() - 1);
+	}
+
+	/**
+	 * A growable array of encoded bytes
+	 */
+	private static class Writer {
+		byte[] bytes = new byte[256];
+		int length;
+
+		void node(int type, int operand) {
+			if (length + 6 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			if (operand >= 0 && operand < INLINE_LIMIT) {
+				bytes[length++] = (byte) (type | operand << 4);
+			}
+			else {
+				bytes[length++] = (byte) (type | INLINE_LIMIT << 4);
+				varint(operand);
+			}
+		}
+
+		/**
+		 * Appends {@code v} as an unsigned varint. Callers leave room for five bytes.
+		 */
+		void varint(int v) {
+			while ((v & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			bytes[length++] = (byte) v;
+		}
+	}
+
+	private static class Reader {
+		final byte[] bytes;
+		int pos;
+
+		Reader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		int next() {
+			if (pos >= bytes.length) {
+				throw new IllegalArgumentException("Truncated program encoding");
+			}
+			return bytes[pos++] & 0xFF;
+		}
+
+		int varint() {
+			int v = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				if (pos >= bytes.length) {
+					throw new IllegalArgumentException("Truncated program encoding");
+				}
+				byte b = bytes[pos++];
+				v |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return v;
+				}
+			}
+			throw new IllegalArgumentException("Malformed program encoding");
+		}
+	}
+}
@@ -1,9 +1,16 @@
 package ast;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import console.Critter; 
+import interpret.Bytecode;
+import interpret.ExecutionProfile;
 /**
  * A data structure representing a critter program.
  *
@@ -14,6 +21,25 @@ public class ProgramImpl extends AbstractNode implements Program {
 	 * List of Rule nodes connected to the Program
 	 */
 	protected List<Rule> ruleNodes; 
+	/**
+	 * How this program is executed: run counts and compiled forms. Null until it is first
+	 * run, and again after the program changes.
+	 */
+	private volatile ExecutionProfile profile;
+	/**
+	 * Total size of the rules up to and including each rule, computed along with the size
+	 */
+	private int[] ruleEnds;
+	/**
+	 * The printed text of this program, null until it is first printed and again after
+	 * the program changes
+	 */
+	private volatile String text;
+	/**
+	 * The hash of {@code text}, null until it is first needed and again after the
+	 * program changes
+	 */
+	private volatile String hash;
 	/*
 	 * Constructor. 
 	 * Instantiates the List of Rule nodes
@@ -32,6 +58,65 @@ public class ProgramImpl extends AbstractNode implements Program {
 	public void add(Rule ruleNode) {
 		ruleNode.setParent(this);
 		ruleNodes.add(ruleNode);
+		sizeChanged();
+		invalidate();
+	}
+	
+	/**
+	 * Returns a program made of {@code rules}, which may belong to other programs. As
+	 * with {@link PathCopy}, the rules keep their parents, so the programs they belong
+	 * to stay intact.
+	 */
+	public static ProgramImpl sharing(List<Rule> rules) {
+		ProgramImpl p = new ProgramImpl();
+		p.ruleNodes.addAll(rules);
+		return p;
+	}
+	
+	/**
+	 * Returns the compiled form of this program, compiling it if needed.
+	 * Null if the program cannot be compiled and has to be interpreted.
+	 */
+	public Bytecode getBytecode() {
+		return getProfile().getBytecode();
+	}
+	
+	/**
+	 * Returns the execution profile of this program, creating it if needed
+	 */
+	public ExecutionProfile getProfile() {
+		ExecutionProfile p = profile;
+		if (p == null) {
+			p = new ExecutionProfile(this);
+			profile = p;
+		}
+		return p;
+	}
+	
+	/**
+	 * Discards everything derived from the rules of this program, to be called
+	 * whenever they change. The program goes back to being interpreted.
+	 */
+	public void invalidate() {
+		profile = null;
+		text = null;
+		hash = null;
+	}
+	
+	/**
+	 * Brings cached sizes up to date after a mutation of {@code target}, a node of this
+	 * program copied by {@link PathCopy}. The mutation may have changed the subtree of
+	 * {@code target} and its parent; every other node it could reach is shared and
+	 * unchanged, so only that subtree and the path up to this program are recomputed.
+	 */
+	private void mutated(Node target) {
+		if (target == this) {
+			sizeChanged();
+			return;
+		}
+		AbstractNode t = (AbstractNode) target;
+		t.forgetSizes();
+		t.sizeChanged();
 	}
 	
 	/**
@@ -67,6 +152,8 @@ public class ProgramImpl extends AbstractNode implements Program {
 	 */
 	public void delete(Rule ruleNode) {
 		ruleNodes.remove(ruleNode); 
+		sizeChanged();
+		invalidate();
 	}
 	
 	/**
@@ -79,60 +166,72 @@ public class ProgramImpl extends AbstractNode implements Program {
 	
 	@Override
 	public Program mutate() {
-		Program p = this.clone();
-		Random rand = new Random(); 
+		return mutate(new SplittableRandom());
+	}
+	
+	@Override
+	public Program mutate(SplittableRandom rand) {
 		boolean done = false;
-		int i = rand.nextInt(p.size());
+		int i = rand.nextInt(size());
+		Node[] target = new Node[1];
+		ProgramImpl p = PathCopy.copy(this, i, target);
+		Node n = target[0];
 		
 		while (!done) {
 			int x = rand.nextInt(6);
-			Node n = p.nodeAt(i); 
 			Mutation m = null;
 			switch(x) {
 			case 0:
-				m = MutationFactory.getDuplicate();
+				m = MutationFactory.getDuplicate(rand);
 				break;
 			case 1:
-				m = MutationFactory.getInsert();
+				m = MutationFactory.getInsert(rand);
 				break;
 			case 2:
-				m = MutationFactory.getRemove();
+				m = MutationFactory.getRemove(rand);
 				break;
 			case 3:
-				m = MutationFactory.getReplace();
+				m = MutationFactory.getReplace(rand);
 				break;
 			case 4:
-				m = MutationFactory.getSwap();
+				m = MutationFactory.getSwap(rand);
 				break;
 			case 5:
-				m = MutationFactory.getTransform(); 
+				m = MutationFactory.getTransform(rand); 
 				break; 
 			}
 			
 			if (n.accept(m)) {
+				p.mutated(n);
 				done = true;
 			}
 			else if (p.numberOfRules() == 0) {
 				done = true; 
 			}
 		}
+		p.invalidate();
 		return p;
 	}
 
 	@Override
 	public Program mutate(int index, Mutation m) {
 		
-		Program clone = this.clone();
+		ProgramImpl copy = null;
 		Node n = null;
 		try {
-			n = clone.nodeAt(index);
+			nodeAt(index);
+			Node[] target = new Node[1];
+			copy = PathCopy.copy(this, index, target);
+			n = target[0];
 			
 		} catch(IndexOutOfBoundsException e) {
 			System.out.println(e.getMessage());
 		}
 		
 		if (n.accept(m)) {
-			return clone; 
+			copy.mutated(n);
+			copy.invalidate();
+			return copy; 
 		}
 		return null;
 	}
@@ -142,46 +241,94 @@ public class ProgramImpl extends AbstractNode implements Program {
 		if (sb == null) {
 			throw new IllegalArgumentException();
 		}
-		for (Rule x : ruleNodes) {
-			sb.append(x.prettyPrint(new StringBuilder()));
-			sb.append('\n');
-			sb.append('\n');
+		return sb.append(text());
+	}
+	
+	/**
+	 * Returns the printed text of this program, as {@code toString} does. The text, and
+	 * that of each rule, is kept until the program changes, so printing an unchanged
+	 * program again only copies it.
+	 */
+	public String text() {
+		String t = text;
+		if (t == null) {
+			StringBuilder sb = new StringBuilder();
+			for (Rule x : ruleNodes) {
+				sb.append(x.text());
+				sb.append('\n');
+				sb.append('\n');
+			}
+			t = sb.toString();
+			text = t;
+		}
+		return t;
+	}
+	
+	/**
+	 * Returns the SHA-256 hash of the printed text of this program in URL-safe Base64.
+	 * The hash is kept until the program changes.
+	 */
+	@Override
+	public String hash() {
+		String h = hash;
+		if (h == null) {
+			try {
+				MessageDigest md = MessageDigest.getInstance("SHA-256");
+				byte[] digest = md.digest(text().getBytes(StandardCharsets.UTF_8));
+				h = Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+			} catch (NoSuchAlgorithmException e) {
+				// Every Java platform is required to support SHA-256
+				throw new IllegalStateException(e);
+			}
+			hash = h;
 		}
-		return sb;
+		return h;
 	}
 	
 	@Override
-	public int size() {
+	void forgetText() {
+		text = null;
+		hash = null;
+	}
+	
+	@Override
+	public String toString() {
+		return text();
+	}
+	
+	@Override
+	protected int computeSize() {
+		int[] ends = new int[ruleNodes.size()];
 		int s = 0;
-		for (Rule x : ruleNodes) {
-			s += x.size();
+		for (int i = 0; i < ends.length; i++) {
+			s += ruleNodes.get(i).size();
+			ends[i] = s;
 		}
+		ruleEnds = ends;
 		return s + SIZE;
 	}
 
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		for (Rule r : ruleNodes) {
+			forgetSizes(r);
+		}
+	}
+
 	@Override
 	public Node nodeAt(int index) {
 		
 		Node n = super.nodeAt(index); 
-		int i = 0;
-		int size = 0;
-		
-		Node node = null;
-		
-		while(n == null) {
-			
-			node = ruleNodes.get(i);
-			size = node.size();
-			if (size >= index) {
-				n = node.nodeAt(index - 1);
-			}
-			else {
-				index -= size; 
-			}
-			
-			i++;
+		if (n != null) {
+			return n;
 		}
-		return n;
+		// super.nodeAt has brought ruleEnds up to date through size()
+		int[] ends = ruleEnds;
+		int offset = index - 1;
+		int i = Arrays.binarySearch(ends, offset);
+		i = i >= 0 ? i + 1 : -i - 1;
+		return ruleNodes.get(i).nodeAt(i == 0 ? offset : offset - ends[i - 1]);
 	}
 	@Override
 	public boolean accept(Mutation m) {
@@ -90,9 +90,16 @@ public class RelationCondition extends AbstractNode implements Condition{
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		return x.size() + y.size() + SIZE;
 	}
+
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(x);
+		forgetSizes(y);
+	}
 	@Override
 	public Node nodeAt(int index) {
 		Node n = super.nodeAt(index);
@@ -1,5 +1,5 @@
 package ast;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import ast.TermExpr.Operator;
 
@@ -11,6 +11,25 @@ import ast.TermExpr.Operator;
  *
  */
 public class ReplaceMutation implements Mutation {
+	/**
+	 * Source of the random choices made by this mutation
+	 */
+	private final SplittableRandom rand;
+
+	/**
+	 * Creates a mutation that makes its random choices from an unseeded stream
+	 */
+	public ReplaceMutation() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a mutation that makes its random choices from {@code rand}
+	 */
+	public ReplaceMutation(SplittableRandom rand) {
+		this.rand = rand;
+	}
+
 
 	@Override
 	public boolean equals(Mutation m) {
@@ -24,7 +43,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(Rule n) {
-		Random rand = new Random(); 
 		ProgramImpl p = (ProgramImpl) n.parent; 
 		int i = rand.nextInt(p.ruleNodes.size());
 		Rule copy = p.ruleNodes.get(i).clone();
@@ -36,7 +54,6 @@ public class ReplaceMutation implements Mutation {
 	@Override
 	public boolean mutate(MemExpr n) {
 
-		Random rand = new Random(); 
 		int i = rand.nextInt(9);
 		switch(i) {
 		case 0:
@@ -86,7 +103,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(FactorExpr n) {
-		Random rand = new Random();
 		int i = rand.nextInt(3);
 		switch(i) {
 		case 0:
@@ -108,7 +124,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(NumExpr n) {
-		Random rand = new Random(); 
 		int value = Integer.MAX_VALUE/rand.nextInt(); 
 		n.value = value; 
 		return true;		
@@ -116,7 +131,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(BinaryCondition n) {
-		Random rand = new Random();
 		int i = rand.nextInt(2);
 		switch(i) {
 		case 0:
@@ -133,7 +147,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(RelationCondition n) {
-		Random rand = new Random();
 		int i = rand.nextInt(6);
 		switch(i) {
 		case 0:
@@ -162,7 +175,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(SensorExpr n) {
-		Random rand = new Random();
 		int i = rand.nextInt(4);
 		switch (i) {
 		case 0:
@@ -207,7 +219,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(ActionImpl n) {
-		Random rand = new Random();
 		int i = rand.nextInt(12);
 		int value = 0; 
 		switch (i) {
@@ -274,7 +285,6 @@ public class ReplaceMutation implements Mutation {
 
 	@Override
 	public boolean mutate(TermExpr n) {
-		Random rand = new Random();
 		int i = rand.nextInt(2);
 		switch(i) {
 		case 0:
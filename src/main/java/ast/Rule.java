@@ -20,6 +20,11 @@ public class Rule extends AbstractNode implements Node {
 	 * List of Updates connected to this Rule
 	 */
 	private List<Update> updates; 
+	/**
+	 * The text of this rule printed on its own, null until it is first printed and
+	 * again after the rule changes
+	 */
+	private volatile String text;
 	
 	/**
 	 * Constructor.
@@ -40,6 +45,7 @@ public class Rule extends AbstractNode implements Node {
 	public void addUpdate(Update u) {
 		u.setParent(this);
 		updates.add(u);
+		sizeChanged();
 	}
 	
 	/**
@@ -48,6 +54,7 @@ public class Rule extends AbstractNode implements Node {
 	 */
 	public void removeUpdate(Update u) {
 		updates.remove(u);
+		sizeChanged();
 	}
 	
 	/**
@@ -63,6 +70,7 @@ public class Rule extends AbstractNode implements Node {
 	 */
 	public void removeAction() {
 		a = null;
+		sizeChanged();
 	}
 	/**
 	 * Returns the condition held within this rule node 
@@ -86,6 +94,7 @@ public class Rule extends AbstractNode implements Node {
 	public void setAction(Action a) {
 		this.a = a;
 		a.setParent(this);
+		sizeChanged();
 	}
 	/**
 	 * 
@@ -100,6 +109,7 @@ public class Rule extends AbstractNode implements Node {
 	 */
 	public void setCondition(Condition c) {
 		this.c = c;
+		sizeChanged();
 	}
 	
 	/**
@@ -112,6 +122,29 @@ public class Rule extends AbstractNode implements Node {
 		return updates.get(index);
 	}
 
+	/**
+	 * Returns the text of this rule printed on its own, as {@code toString} does.
+	 * The text is kept until the rule changes.
+	 */
+	public String text() {
+		String t = text;
+		if (t == null) {
+			t = prettyPrint(new StringBuilder()).toString();
+			text = t;
+		}
+		return t;
+	}
+	
+	@Override
+	void forgetText() {
+		text = null;
+	}
+	
+	@Override
+	public String toString() {
+		return text();
+	}
+
 	@Override
 	public StringBuilder prettyPrint(StringBuilder sb) {
 		c.prettyPrint(sb);
@@ -137,7 +170,7 @@ public class Rule extends AbstractNode implements Node {
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		int s = 0;
 		s += c.size();
 		for (Update up : updates) {
@@ -148,6 +181,16 @@ public class Rule extends AbstractNode implements Node {
 		return s + SIZE;
 	}
 
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(c);
+		for (Update up : updates) {
+			forgetSizes(up);
+		}
+		forgetSizes(a);
+	}
+
 	@Override
 	public Node nodeAt(int index) {
 		
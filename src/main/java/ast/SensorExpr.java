@@ -82,11 +82,17 @@ public class SensorExpr extends AbstractNode implements Expr  {
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		if (x == null)
 			return size;
 		return x.size() + size;
 	}
+
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(x);
+	}
 	
 	@Override
 	public boolean accept(Mutation m) {
@@ -1,7 +1,7 @@
 package ast;
 
 import java.util.Collections;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * 
@@ -10,6 +10,25 @@ import java.util.Random;
  *
  */
 public class SwapMutation implements Mutation {
+	/**
+	 * Source of the random choices made by this mutation
+	 */
+	private final SplittableRandom rand;
+
+	/**
+	 * Creates a mutation that makes its random choices from an unseeded stream
+	 */
+	public SwapMutation() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a mutation that makes its random choices from {@code rand}
+	 */
+	public SwapMutation(SplittableRandom rand) {
+		this.rand = rand;
+	}
+
 
 	@Override
 	public boolean equals(Mutation m) {
@@ -19,7 +38,6 @@ public class SwapMutation implements Mutation {
 
 	@Override
 	public boolean mutate(ProgramImpl n) {
-		Random rand = new Random();
 		System.out.println(n.ruleNodes.size());
 		if (n.ruleNodes.size() <= 0) {
 			return false;
@@ -1,6 +1,6 @@
 package ast;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import ast.TermExpr.Operator;
 
@@ -11,6 +11,25 @@ import ast.TermExpr.Operator;
  * The node cannot be replaced if it has no children
  */
 public class TransformMutation implements Mutation {
+	/**
+	 * Source of the random choices made by this mutation
+	 */
+	private final SplittableRandom rand;
+
+	/**
+	 * Creates a mutation that makes its random choices from an unseeded stream
+	 */
+	public TransformMutation() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a mutation that makes its random choices from {@code rand}
+	 */
+	public TransformMutation(SplittableRandom rand) {
+		this.rand = rand;
+	}
+
 
 	
 	@Override
@@ -38,7 +57,6 @@ public class TransformMutation implements Mutation {
 		if (n.type == null) {
 			return false;
 		}
-		Random rand = new Random(); 
 		int i = rand.nextInt(8);
 		switch(i) {
 		case 0:
@@ -73,7 +91,6 @@ public class TransformMutation implements Mutation {
 
 	@Override
 	public boolean mutate(FactorExpr n) {
-		Random rand = new Random();
 		int i = rand.nextInt(5);
 		Expr node = null;
 		switch (i){
@@ -143,7 +160,6 @@ public class TransformMutation implements Mutation {
 
 	@Override
 	public boolean mutate(NumExpr n) {
-		Random rand = new Random();
 		int value = Integer.MAX_VALUE/rand.nextInt();
 		int choice = rand.nextInt(2); 
 		switch(choice) {
@@ -160,7 +176,6 @@ public class TransformMutation implements Mutation {
 
 	@Override
 	public boolean mutate(BinaryCondition n) {
-		Random rand = new Random();
 		
 		int choice = rand.nextInt(2);
 		switch(choice) {
@@ -176,7 +191,6 @@ public class TransformMutation implements Mutation {
 
 	@Override
 	public boolean mutate(RelationCondition n) {
-		Random rand = new Random();
 		int choice = rand.nextInt(6);
 		switch(choice) {
 		case 0:
@@ -208,7 +222,6 @@ public class TransformMutation implements Mutation {
 		if (n.x == null) {
 			return false;
 		}
-		Random rand = new Random();
 		SensorExpr replace = null;
 		int choice = 0;
 		choice = rand.nextInt(3);
@@ -267,7 +280,6 @@ public class TransformMutation implements Mutation {
 
 	@Override
 	public boolean mutate(ActionImpl n) {
-		Random rand = new Random(); 
 		ActionImpl replace = null;
 		int choice = 0;
 		
@@ -320,7 +332,6 @@ public class TransformMutation implements Mutation {
 
 	@Override
 	public boolean mutate(TermExpr n) {	
-		Random rand = new Random();
 		int i = rand.nextInt(5);
 		Expr node = null;
 		switch (i){
@@ -25,11 +25,17 @@ public class UnaryExpr extends AbstractNode implements Expr{
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		
 		return x.size() + SIZE;
 	}
 
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(x);
+	}
+
 	@Override
 	public StringBuilder prettyPrint(StringBuilder sb) {
 		sb.append("-");
@@ -57,9 +57,16 @@ public class UpdateImpl extends AbstractNode implements Update{
 	}
 	
 	@Override
-	public int size() {
+	protected int computeSize() {
 		return x.size() + y.size() + SIZE;
 	}
+
+	@Override
+	void forgetSizes() {
+		super.forgetSizes();
+		forgetSizes(x);
+		forgetSizes(y);
+	}
 	
 	@Override
 	public Node nodeAt(int index) {
@@ -1,16 +1,16 @@
 package console;
 
-import java.util.HashSet;
-import java.util.PriorityQueue;
-import java.util.Random;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
 
 import ast.Program;
 import ast.ProgramImpl;
+import ast.ActionImpl.Actions;
 import ast.Rule;
 import console.DummyClassLibrary.DeadCritter;
-import interpret.Interpreter;
-import interpret.InterpreterImpl;
+import interpret.TieredExecutor;
 
 /**
  * The class representing a critter in the simulation.
@@ -52,6 +52,46 @@ public class Critter {
 	 * The world {@code this} inhabits
 	 */
 	private World w;
+	/**
+	 * This critter's own random stream, split from the world's critter stream
+	 */
+	private SplittableRandom random;
+	/**
+	 * The action chosen while the current step was planned, null if none
+	 */
+	private Actions plannedAction;
+	/**
+	 * The value of the planned action, for tag and serve
+	 */
+	private int plannedValue;
+	/**
+	 * Appearance of this critter as seen by others while the current step is planned
+	 */
+	private int plannedAppearance;
+	/**
+	 * True once this critter has died
+	 */
+	private boolean dead;
+	/**
+	 * Memory as it was before the current pass, to detect passes that change nothing
+	 */
+	private int[] passMemory;
+	/**
+	 * Number of distances ahead whose contents are remembered within a turn
+	 */
+	private static final int SENSED_AHEAD = 16;
+	/**
+	 * What the sensors reported during the current turn: an entry is valid while its
+	 * stamp equals {@code senseStamp}, which changes whenever the critter's view may have
+	 * changed
+	 */
+	private int senseStamp = 1;
+	private final int[] nearbySensed = new int[6];
+	private final int[] nearbyStamp = new int[6];
+	private final int[] aheadSensed = new int[SENSED_AHEAD];
+	private final int[] aheadStamp = new int[SENSED_AHEAD];
+	private int smellSensed;
+	private int smellStamp;
 	/**
 	 * Indicates if {@code this} critter is ready to mate
 	 */
@@ -67,7 +107,8 @@ public class Critter {
 	/**
 	 * Constructor for a critter object.
 	 * 
-	 * @param critterProgram the AST of the critter program
+	 * @param critterProgram the AST of the critter program, shared with every critter of
+	 * the same genome and not to be modified afterwards
 	 * @param mem an array representing the memory of a critter
 	 * @param speciesName the reference name of the critter
 	 * @param direction the direction the new critter is facing 
@@ -80,11 +121,12 @@ public class Critter {
 		this.w = w; 
 		this.col = col; 
 		this.row = row; 
-		this.critterProgram = critterProgram;
+		this.critterProgram = w.getGenomes().intern(critterProgram);
 		this.mem = mem; 
 		this.direction = direction;
 		this.speciesName = speciesName;
 		this.sessionId = -1;
+		this.random = w.newCritterRandom();
 		complexity = critterProgram.numberOfRules() * Constants.RULE_COST() + 
 				(mem[1] + mem[2]) * Constants.ABILITY_COST();
 		readyToMate = false; 
@@ -94,87 +136,36 @@ public class Critter {
 	 * @return value based on the distance and direction of the closest food to the critter
 	 */
 	public int smell() {
-		/**
-		 * Use djikstra's algorithm to find shortest path to all valid hexes 
-		 * in a 10 hex radius
-		 * Set starting hex distance to 0
-		 * Add starting hex to the undiscovered hexes
-		 * 
-		 */
-		Set<Hex> blackHexes = new HashSet<Hex>();
-		PriorityQueue<Hex> whiteHexes = new PriorityQueue<Hex>();
-		boolean found = false;
-		Hex root = w.getHex(col, row);
-		root.setDistance(0);
-		root.setDirection(direction);
-		whiteHexes.add(root);
-		while(whiteHexes.size() != 0) {
-			Hex currentHex = whiteHexes.remove();
-			if (currentHex.hasFood()) {
-				int relativeDirection = getRelativeDistance(currentHex, root);
-				w.resetTiles();
-				return (currentHex.getDistance() - 1) * 1000 + relativeDirection;
-			}
-			else if ((currentHex.getDistance() - 1) > Constants.MAX_SMELL_DISTANCE()) {
-				w.resetTiles();
-				return 1000000;
-			}
-			Hex edgeHex = null;
-			int turnDistance = 0;
-			int newDistance = 0;
-			for (int i = 0; i < 6; i++) {
-				edgeHex = currentHex.getHexInDirection(1, i);
-				turnDistance = Math.abs((i - currentHex.getDirection()) % 6);
-				if (turnDistance > 6 / 2) {
-					turnDistance = 6 - turnDistance; 
-				}
-				newDistance = currentHex.getDistance() + 1 + turnDistance; 
-				if (edgeHex != null && !edgeHex.hasRock() && !edgeHex.hasCritter() && !blackHexes.contains(edgeHex)) {
-					if (edgeHex.getDistance() == Integer.MAX_VALUE) {
-						edgeHex.setPrev(currentHex);
-						edgeHex.setDirection(i);
-						edgeHex.setDistance(newDistance);
-						whiteHexes.add(edgeHex);
-					}
-					else {
-						if (edgeHex.getDistance() > newDistance) {
-							edgeHex.setPrev(currentHex);
-							edgeHex.setDirection(i);
-							edgeHex.setDistance(newDistance);
-							whiteHexes.remove(edgeHex);
-							whiteHexes.add(edgeHex); 
-						}
-					}
-				}
-			}
-			blackHexes.add(currentHex);
+		if (smellStamp != senseStamp) {
+			smellSensed = w.smellField().smell(w.getHex(col, row), direction);
+			smellStamp = senseStamp;
 		}
-		return 1000000; 
+		return smellSensed;
 	}
 	
-	private int getRelativeDistance(Hex startingPoint, Hex goal) {
-		boolean foundRelativeDistance = false;
-		int relativeDirection = 0;
-		while(!foundRelativeDistance) {
-			if (startingPoint.getPrev().equals(goal)) {
-				relativeDirection = startingPoint.getDirection();
-				foundRelativeDistance = true;
-			}
-			else {
-				startingPoint = startingPoint.getPrev();
-			}
-		}
-		return relativeDirection; 
+	/**
+	 * Forgets what the sensors reported, to be called when the critter may see
+	 * something different: at the start of a turn and when it moves or turns
+	 */
+	private void forgetSenses() {
+		senseStamp++;
 	}
+	
 	/**
 	 * Generate a random number with a given upper bound
 	 * @param upperBound the max number 
 	 * @return a random number up to the {@code upperBound}
 	 */
 	private int getRandomNumber(int upperBound) {
-		Random random = new Random();
 		return random.nextInt(upperBound);
 	}
+	
+	/**
+	 * Returns this critter's own random stream
+	 */
+	public SplittableRandom getRandom() {
+		return random;
+	}
 	/**
 	 * 
 	 * @param distance the amount to look ahead by
@@ -184,28 +175,10 @@ public class Critter {
 		if (direction >= 6) {
 			direction -= 6;
 		}
-		Hex hex = null;
-		switch(direction) {
-		case 0:
-			hex = w.getHex(col, row + distance); 
-			break; 
-		case 1: 
-			hex = w.getHex(col + distance, row + distance); 
-			break;
-		case 2:
-			hex = w.getHex(col + distance, row); 
-			break;
-		case 3:
-			hex = w.getHex(col, row - distance);
-			break;
-		case 4:
-			hex = w.getHex(col - distance, row - distance);
-			break;
-		case 5:
-			hex = w.getHex(col - distance, row); 
-			break;
+		if (direction < 0 || direction >= 6) {
+			return null;
 		}
-		return hex;
+		return w.getHexInDirection(col, row, distance, direction);
 	}
 	/**
 	 * 
@@ -213,7 +186,22 @@ public class Critter {
 	 * @return a value representing what is on the tile a number {@code tiles} ahead
 	 */
 	public int ahead(int tiles) {
-		Hex hex = getHexInDirection(tiles, this.direction);
+		// The critter's own hex is left out, as its appearance changes with its memory
+		if (tiles > 0 && tiles < SENSED_AHEAD) {
+			if (aheadStamp[tiles] != senseStamp) {
+				aheadSensed[tiles] = sense(tiles, direction);
+				aheadStamp[tiles] = senseStamp;
+			}
+			return aheadSensed[tiles];
+		}
+		return sense(tiles, direction);
+	}
+	/**
+	 * Returns what is on the hex {@code distance} away in {@code direction}, -1 if
+	 * there is no such hex
+	 */
+	private int sense(int distance, int direction) {
+		Hex hex = getHexInDirection(distance, direction);
 		if (hex != null) {
 			return hex.hexContains();
 		}
@@ -230,13 +218,14 @@ public class Critter {
 		if (direction > 5 || direction < 0 ) {
 			direction = direction % 6; 
 		}
-		Hex hex = getHexInDirection(1, direction);
-		if (hex != null) {
-			return getHexInDirection(1, direction).hexContains(); 
+		if (direction < 0) {
+			return -1;
 		}
-		else {
-			return -1; 
+		if (nearbyStamp[direction] != senseStamp) {
+			nearbySensed[direction] = sense(1, direction);
+			nearbyStamp[direction] = senseStamp;
 		}
+		return nearbySensed[direction];
 	}
 	/**
 	 * Executes the wait action for the critter
@@ -282,6 +271,7 @@ public class Critter {
 					w.getHex(col, row).removeCritter();
 					col = hex.getColumn();
 					row = hex.getRow();
+					forgetSenses();
 				}
 			}
 		}
@@ -293,6 +283,7 @@ public class Critter {
 		mem[4] -= mem[3]; 
 		if(!checkForDeath()) {
 			direction = (direction + 1) % 6;
+			forgetSenses();
 			w.getHex(col, row).update();
 		}
 	}
@@ -303,6 +294,7 @@ public class Critter {
 		mem[4] -= mem[3]; 
 		if(!checkForDeath()) {
 			direction = (direction - 1) % 6;
+			forgetSenses();
 			w.getHex(col, row).update();
 			while (direction < 0)
 				direction += 6;
@@ -338,10 +330,9 @@ public class Critter {
 		if (mem[4] - Constants.BUD_COST() > 0) {
 			mem[4] -= Constants.BUD_COST() * complexity; 
 			if (!checkForDeath()) {
-				Program p = critterProgram.clone();
 				Hex hex = getHexInDirection(1, direction + 3);
 				if (hex != null && hex.isEmpty()) {
-					Critter child = new Critter(p, prepareChild(), speciesName, direction, hex.getColumn(), hex.getRow(), w, null);
+					Critter child = new Critter(critterProgram, prepareChild(), speciesName, direction, hex.getColumn(), hex.getRow(), w, null);
 					child.mutate();
 					hex.setCritter(child);
 					w.addCritter(child);
@@ -392,7 +383,7 @@ public class Critter {
 						String newSpeciesName = "";
 						int newDirection = 0; 
 						Hex childLocation = null;
-						Program newProgram = new ProgramImpl(); 
+						List<Rule> newRules = new ArrayList<Rule>(); 
 						switch (choice) {
 						case 0:
 							newSpeciesName = parent.speciesName;
@@ -410,24 +401,27 @@ public class Critter {
 							break;
 						}
 						if (childLocation.isEmpty()) {
+							// The parents' programs are shared with other critters, so their
+							// rules are shared with the child rather than taken over by it
 							for (int i = 0; i < newSize; i++) {
-								if (i > critterProgram.size()) {
-									newProgram.add(parent.critterProgram.get(i));
+								if (i >= critterProgram.numberOfRules()) {
+									newRules.add(parent.critterProgram.get(i));
 								}
-								else if(i > parent.critterProgram.size()){
-									newProgram.add(critterProgram.get(i));
+								else if(i >= parent.critterProgram.numberOfRules()){
+									newRules.add(critterProgram.get(i));
 								}
 								else {
 									choice = getRandomNumber(2);
 									switch(choice) {
 									case 0:
-										newProgram.add(parent.critterProgram.get(i));
+										newRules.add(parent.critterProgram.get(i));
 										break;
 									case 1:
-										newProgram.add(critterProgram.get(i));
+										newRules.add(critterProgram.get(i));
 									}
 								}
 							}
+								Program newProgram = ProgramImpl.sharing(newRules);
 								Critter child = new Critter(newProgram, newMem, newSpeciesName, newDirection, 
 										childLocation.getColumn(), childLocation.getRow(), w, null);
 								child.mutate();
@@ -480,6 +474,7 @@ public class Critter {
 					w.getHex(col, row).removeCritter();; 
 					col = hex.getColumn();
 					row = hex.getRow(); 
+					forgetSenses();
 				}
 			}
 		}
@@ -497,9 +492,30 @@ public class Critter {
 	 * Critter will run its program and execute an action
 	 */
 	public void nextTurn() {
-		Interpreter interp = new InterpreterImpl(this);
-		while (turnNotDone() && !interp.interpretProgram(critterProgram)) {
-			
+		runPasses(new TieredExecutor(this, false));
+	}
+	/**
+	 * Runs the critter program until it chooses an action or the turn is over. A pass
+	 * that leaves memory as it was, in a program that neither reads PASS nor draws random
+	 * numbers, would be repeated identically until the end of the turn, so the turn skips
+	 * straight to its last pass.
+	 */
+	private void runPasses(TieredExecutor interp) {
+		forgetSenses();
+		boolean skippable = interp.isPassIndependent(critterProgram);
+		if (skippable && (passMemory == null || passMemory.length != mem.length)) {
+			passMemory = new int[mem.length];
+		}
+		while (turnNotDone()) {
+			if (skippable) {
+				System.arraycopy(mem, 0, passMemory, 0, mem.length);
+			}
+			if (interp.interpretProgram(critterProgram)) {
+				break;
+			}
+			if (skippable && mem[5] < 999 && Arrays.equals(mem, passMemory)) {
+				mem[5] = 999;
+			}
 			if(mem[5] == 999){
 				critterWait(); 
 			}
@@ -507,6 +523,90 @@ public class Critter {
 		}
 		mem[5] = 0;
 	}
+	/**
+	 * Fixes the appearance other critters see while the next step is planned
+	 */
+	void snapshotAppearance() {
+		plannedAppearance = mem[3] * 100000 + mem[6] * 1000 + mem[7] * 10 + direction;
+	}
+	/**
+	 * Runs the critter program like {@link #nextTurn()}, but only records the chosen
+	 * action, to be carried out by {@link #commitTurn()}. Only touches the memory of
+	 * this critter, so the critters of a world may plan their turns concurrently.
+	 */
+	void planTurn() {
+		plannedAction = null;
+		runPasses(new TieredExecutor(this, true));
+	}
+	/**
+	 * Records {@code action} as the action of the turn being planned
+	 * @param value the value of a tag or serve action
+	 */
+	public void planAction(Actions action, int value) {
+		plannedAction = action;
+		plannedValue = value;
+	}
+	/**
+	 * Carries out the action recorded by {@link #planTurn()}, if any
+	 */
+	void commitTurn() {
+		if (plannedAction != null) {
+			performAction(plannedAction, plannedValue);
+			plannedAction = null;
+		}
+	}
+	/**
+	 * Carries out {@code action}
+	 * @param value the value of a tag or serve action
+	 */
+	public void performAction(Actions action, int value) {
+		switch(action) {
+		case WAIT:
+			critterWait();
+			break;
+		case TAG:
+			tag(value);
+			break;
+		case SERVE:
+			serve(value);
+			break;
+		case RIGHT:
+			right();
+			break;
+		case MATE:
+			mate();
+			break;
+		case LEFT:
+			left();
+			break;
+		case GROW:
+			grow();
+			break; 
+		case FORWARD:
+			forward();
+			break;
+		case EAT:
+			eat();
+			break;
+		case BUD:
+			bud();
+			break;
+		case BACKWARD: 
+			backwards();
+			break; 
+		case ATTACK: 
+			attack();
+			break;
+		default:
+			throw new IllegalArgumentException(); 
+		}
+	}
+	/**
+	 * Returns true if this critter has died
+	 */
+	public boolean isDead() {
+		return dead;
+	}
 	/**
 	 * 
 	 * @param memLocation The memory location to retrieve data from
@@ -555,7 +655,7 @@ public class Critter {
 	 * Return the pretty print of the critter program
 	 */
 	public String getAst() {
-		return critterProgram.prettyPrint(new StringBuilder()).toString();
+		return critterProgram.toString();
 	}
 	/**
 	 * Returns a hard copy of the memory values held in the critter
@@ -580,6 +680,9 @@ public class Critter {
 	 * @return the appearance of the Critter
 	 */
 	public int getAppearance() {
+		if (w.isPlanning()) {
+			return plannedAppearance;
+		}
 		return mem[3] * 100000 + mem[6] * 1000 + mem[7] * 10 + direction;
 	}
 	/**
@@ -601,6 +704,7 @@ public class Critter {
 	 */
 	public boolean checkForDeath() {
 		if (mem[4] <= 0) {
+			dead = true;
 			w.getHex(col, row).removeCritter();
 			w.getHex(col, row).addFood(mem[3] * Constants.FOOD_PER_SIZE());
 			w.getFood().add(w.getHex(col, row));
@@ -616,13 +720,12 @@ public class Critter {
 	 * The two possibilities for mutations to a critter are alterations to its memory or alterations to its program
 	 */
 	public void mutate() {
-		Random rand = new Random(); 
-		while(rand.nextInt(4) == 3) {
+		while(random.nextInt(4) == 3) {
 		
 			int mutationType = this.getRandomNumber(2);
 			switch(mutationType) {
 			case 0:
-				critterProgram = critterProgram.mutate(); 
+				critterProgram = w.getGenomes().intern(critterProgram.mutate(random)); 
 				System.out.println("Critter mutation occurred");
 				break;
 			case 1:
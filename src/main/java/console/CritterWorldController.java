@@ -14,10 +14,13 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
 
@@ -50,6 +53,7 @@ import parse.ParserFactory;
 import com.google.gson.Gson;
 
 import ast.Program;
+import ast.ProgramImpl;
 import ast.Rule;
 
 public class CritterWorldController{
@@ -225,6 +229,10 @@ public class CritterWorldController{
 	 * Gson object serialize objects for communication with the server
 	 */
 	private Gson gson;
+	/**
+	 * Critter programs fetched from the server, by their hash
+	 */
+	private final Map<String, Program> programs = new HashMap<String, Program>();
 	/**
 	 * Used to connect with the server
 	 */
@@ -844,22 +852,31 @@ public class CritterWorldController{
     }
     
     /**
-     * Initiates a http get world info request to the stored server address
+     * Initiates a http get world info request to the stored server address. The world is asked for in
+     * binary form, and read as JSON if the server sends that instead.
      * @return a WorldInfo object containing all information from the get world request
      */
     private WorldInfoForGet getWorldInfo() {
     		WorldInfoForGet info = null;
     			try {
     				if (world == null) {
-    					serverAddress = new URL(this.information[0] + "/world?session_id=" + sessionID);
+    					serverAddress = new URL(this.information[0] + "/world?session_id=" + sessionID + "&inline_programs=false");
     				}
     				else {
-    					serverAddress = new URL(this.information[0] + "/world?session_id=" + sessionID + "&update_since=" + world.getVersion());
+    					serverAddress = new URL(this.information[0] + "/world?session_id=" + sessionID + "&update_since=" + world.getVersion()
+    							+ "&inline_programs=false");
     				}
 				connection = (HttpURLConnection) serverAddress.openConnection();
+				connection.setRequestProperty("Accept", WorldStateWriter.MEDIA_TYPE + ", application/json");
 				connection.connect();
-				reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-				info = gson.fromJson(reader, WorldInfoForGet.class);
+				String contentType = connection.getContentType();
+				if (contentType != null && contentType.startsWith(WorldStateWriter.MEDIA_TYPE)) {
+					info = WorldStateReader.read(connection.getInputStream());
+				}
+				else {
+					reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+					info = gson.fromJson(reader, WorldInfoForGet.class);
+				}
 				//System.out.println(gson.toJson(info));
 			} catch (MalformedURLException e) {
 				System.out.println("Invalid URL to connect to the server");
@@ -870,6 +887,48 @@ public class CritterWorldController{
 			} 
     		return info;
     }
+    /**
+     * Returns the program of the critter described by {@code state}. A program is fetched from the
+     * server the first time its hash is seen, and shared by every critter with that hash afterwards.
+     * @return the program, or a program without rules if the server did not send one or it could
+     * not be fetched, so that the critter is still shown
+     */
+    private Program getProgram(GeneralInfo state) {
+    		Program program = fetchProgram(state);
+    		return program == null ? new ProgramImpl() : program;
+    }
+    /**
+     * Returns the program of the critter described by {@code state}, or null if it is not available
+     */
+    private Program fetchProgram(GeneralInfo state) {
+    		String hash = state.getProgram_hash();
+    		if (hash == null) {
+    			// A server that only sends programs as text
+    			return state.getProgram() == null ? null : ParserFactory.getParser().parse(state.getProgram());
+    		}
+    		Program program = programs.get(hash);
+    		if (program == null) {
+    			if (state.getProgram() != null) {
+    				program = ParserFactory.getParser().parse(state.getProgram());
+    			}
+    			else {
+    				try {
+    					URL programAddress = new URL(information[0] + "/program/" + hash + "?session_id=" + sessionID);
+    					HttpURLConnection programConnection = (HttpURLConnection) programAddress.openConnection();
+    					programConnection.connect();
+    					program = ParserFactory.getParser().parse(new BufferedReader(
+    							new InputStreamReader(programConnection.getInputStream(), StandardCharsets.UTF_8)));
+    				} catch (IOException e) {
+    					e.printStackTrace();
+    					return null;
+    				}
+    			}
+    			if (program != null) {
+    				programs.put(hash, program);
+    			}
+    		}
+    		return program;
+    }
     /**
      * Advances the world by {@code stepToTake}
      * @param stepToTake amount of steps to advance the server world by
@@ -1093,10 +1152,10 @@ public class CritterWorldController{
     		}
     		for (int i = 0; i < states.size(); i++) {
     			if(states.get(i).getType() == Type.critter) {
-    				StringReader programReader = new StringReader(states.get(i).getProgram());
     				Rule rule = null;
-    				Program program = ParserFactory.getParser().parse(new BufferedReader(programReader));
-    				if (states.get(i).getRecently_executed_rule() > -1) {
+    				Program program = getProgram(states.get(i));
+    				if (states.get(i).getRecently_executed_rule() > -1
+    						&& states.get(i).getRecently_executed_rule() < program.numberOfRules()) {
     					rule = program.get(states.get(i).getRecently_executed_rule());
     				}
     				Critter newCrit = new Critter(program, states.get(i).getMemory(), states.get(i).getSpecies_id(),
@@ -54,11 +54,14 @@ public class DummyClassLibrary {
 	}
 	/**
 	 * The information to what critters should be added to the world.
-	 * Request in post("/critters").
+	 * Request in post("/critters"). Instead of the {@code species_id}, {@code program}
+	 * and {@code mem}, it can hold the {@code registry_id} of a species uploaded with
+	 * post("/species").
 	 */
 	public static class AddCritter {
 		private String species_id;
 		private String program;
+		private Integer registry_id;
 		private int[] mem;
 		private Position[] positions;
 		private Integer num;
@@ -77,13 +80,59 @@ public class DummyClassLibrary {
 			this.positions = positions;
 			this.num = null;
 		}
+		public AddCritter(int registry_id, int num) {
+			this.registry_id = registry_id;
+			this.num = num;
+		}
+		public AddCritter(int registry_id, Position[] positions) {
+			this.registry_id = registry_id;
+			this.positions = positions;
+		}
 		public String species_id() {return species_id;}
 		public String program() {return program;}
+		public Integer registry_id() {return registry_id;}
 		public int[] mem() {return mem;}
 		public Position[] positions() {return positions;}
 		public Integer num() {return num;}
 	}
 	
+	/**
+	 * A species to be registered on the server.
+	 * Request in post("/species").
+	 */
+	public static class AddSpecies {
+		private String species_id;
+		private String program;
+		private int[] mem;
+		
+		public AddSpecies(String species_id, String program, int[] mem) {
+			this.species_id = species_id;
+			this.program = program;
+			this.mem = mem;
+		}
+		public String species_id() {return species_id;}
+		public String program() {return program;}
+		public int[] mem() {return mem;}
+	}
+	
+	/**
+	 * The id that a registered species is referred to by.
+	 * Response in a post("/species") request.
+	 */
+	public static class SpeciesAdded {
+		private String species_id;
+		private int registry_id;
+		private String program_hash;
+		
+		public SpeciesAdded(String species_id, int registry_id, String program_hash) {
+			this.species_id = species_id;
+			this.registry_id = registry_id;
+			this.program_hash = program_hash;
+		}
+		
+		public int registry_id() {return registry_id;}
+	}
+	
 	/**
 	 * Used to hold information about a critter that has died. Never explicitly
 	 * used in a request or response, but is used in the deadCritterList object
@@ -224,6 +273,7 @@ public class DummyClassLibrary {
 		private Type type;
 		private int id;
 		private String program;
+		private String program_hash;
 		private String species_id;
 		private int row, col, direction;
 		private int[] mem;
@@ -245,16 +295,23 @@ public class DummyClassLibrary {
 			this.type = type;
 		}
 		
+		/**
+		 * Describes a critter along with its program, which is referred to by
+		 * {@code program_hash} and also given as text if {@code inlineProgram}
+		 */
 		public CritterInfo(int id, String species_id, int row, int col, 
-				int direction, int[] mem, Program program, Rule rule) {
+				int direction, int[] mem, Program program, Rule rule, boolean inlineProgram) {
 			this(id, species_id, row, col, direction, mem);
-			this.program = program.toString();
+			if (inlineProgram) {
+				this.program = program.toString();
+			}
+			this.program_hash = program.hash();
 			this.recently_executed_rule = rule == null ? -1 : program.getIndexOf(rule);
 		}
 		
 		public CritterInfo(int id, String species_id, int row, int col, 
-				int direction, int[] mem, Program program, Rule rule, Type type) {
-			this(id, species_id, row, col, direction, mem, program, rule);
+				int direction, int[] mem, Program program, Rule rule, boolean inlineProgram, Type type) {
+			this(id, species_id, row, col, direction, mem, program, rule, inlineProgram);
 			this.type = type;
 		}
 		
@@ -271,6 +328,7 @@ public class DummyClassLibrary {
 		private Type type;
 		private int id;
 		private String program;
+		private String program_hash;
 		private String species_id;
 		private int row, col, direction;
 		private int[] mem;
@@ -294,6 +352,21 @@ public class DummyClassLibrary {
 		private ArrayList<Integer> dead_critters;
 		private ArrayList<GeneralInfo> state;
 		
+		public WorldInfoForGet(int time, int version, int update, double rate,
+				String name, int population, int rows, int columns, ArrayList<Integer> ids,
+				ArrayList<GeneralInfo> state) {
+			this.current_timestep = time;
+			this.current_version_number = version;
+			this.update_since = update;
+			this.rate = rate;
+			this.name = name;
+			this.population = population;
+			this.rows = rows;
+			this.cols = columns;
+			this.dead_critters = ids;
+			this.state = state;
+		}
+		
 		/**
 		 * @return the name of the world
 		 */
@@ -350,12 +423,39 @@ public class DummyClassLibrary {
 		private Type type;
 		private int id;
 		private String program;
+		private String program_hash;
 		private String species_id;
 		private int row, col, direction;
 		private int[] mem;
 		private int recently_executed_rule;
 		private int value;
 		
+		/**
+		 * Describes a rock, food with {@code value}, or a hex that has been updated to have nothing
+		 */
+		public GeneralInfo(Type type, int row, int col, int value) {
+			this.type = type;
+			this.row = row;
+			this.col = col;
+			this.value = value;
+		}
+		
+		/**
+		 * Describes a critter, with {@code program} and {@code program_hash} null if they
+		 * were not sent
+		 */
+		public GeneralInfo(int id, String species_id, int row, int col, int direction, int[] mem,
+				String program, String program_hash, int recently_executed_rule) {
+			this(Type.critter, row, col, 0);
+			this.id = id;
+			this.species_id = species_id;
+			this.direction = direction;
+			this.mem = mem;
+			this.program = program;
+			this.program_hash = program_hash;
+			this.recently_executed_rule = recently_executed_rule;
+		}
+		
 		public Type getType() {
 			return type;
 		}
@@ -365,6 +465,9 @@ public class DummyClassLibrary {
 		public String getProgram() {
 			return program;
 		}
+		public String getProgram_hash() {
+			return program_hash;
+		}
 		public String getSpecies_id() {
 			return species_id;
 		}
@@ -436,12 +539,17 @@ public class DummyClassLibrary {
 	 */
 	public static class Description {
 		private String description;
+		private Long seed;
 		
 		public Description(String description) {
 			this.description = description;
 		}
 		
 		public String description() {return description;}
+		/**
+		 * The seed of the new world's random streams, null if none was given
+		 */
+		public Long seed() {return seed;}
 	}
 	/**
 	 * A class to hold information about the rate at which the world is running.
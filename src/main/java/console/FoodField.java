@@ -0,0 +1,290 @@
+package console;
+
+import java.util.Arrays;
+
+/**
+ * Distance to the closest food from every (hex, facing) state of a world, under the cost
+ * model of smell: a step costs one move plus the number of turns needed to face the
+ * direction of the step. Distances above {@code MAX_SMELL_DISTANCE + 1} are not tracked.
+ * <p>
+ * The field follows rocks and food only; critters move every turn, so they are checked
+ * when the field is read. It is built once and then kept up to date by
+ * {@link #update(Hex)} whenever a hex gains or loses food or a rock: only hexes within the
+ * tracked distance of the change can be affected, so only those are recomputed.
+ */
+class FoodField {
+	/**
+	 * Terrain kinds remembered per hex
+	 */
+	private static final byte OPEN = 0, FOOD = 1, ROCK = 2;
+	/**
+	 * The grid this field describes
+	 */
+	private final HexGrid grid;
+	/**
+	 * Largest distance tracked
+	 */
+	private final int cap;
+	/**
+	 * Value of states that are further than {@code cap} from any food
+	 */
+	private final short far;
+	/**
+	 * Distance to the closest food from each state, states are {@code slot * 6 + facing}
+	 */
+	private final short[] dist;
+	/**
+	 * The terrain of each hex the last time the field was updated
+	 */
+	private final byte[] kind;
+	/**
+	 * Number of the current update, used to mark the hexes being recomputed
+	 */
+	private int epoch;
+	/**
+	 * Update that last marked each hex
+	 */
+	private final int[] mark;
+	/**
+	 * States waiting to be expanded, by distance
+	 */
+	private final int[][] buckets;
+	/**
+	 * Number of states in each bucket
+	 */
+	private final int[] counts;
+
+	/**
+	 * Builds the field of {@code grid} for distances up to {@code cap}
+	 */
+	FoodField(HexGrid grid, int cap) {
+		this.grid = grid;
+		this.cap = cap;
+		far = (short) (cap + 1);
+		int n = grid.size();
+		dist = new short[n * 6];
+		kind = new byte[n];
+		mark = new int[n];
+		buckets = new int[cap + 1][];
+		for (int c = 0; c <= cap; c++) {
+			buckets[c] = new int[16];
+		}
+		counts = new int[cap + 1];
+		Arrays.fill(dist, far);
+		for (int i = 0; i < n; i++) {
+			kind[i] = kindOf(grid.get(i));
+			if (kind[i] == FOOD) {
+				for (int f = 0; f < 6; f++) {
+					dist[i * 6 + f] = 0;
+				}
+				push(0, i * 6);
+			}
+		}
+		propagate();
+	}
+
+	/**
+	 * Returns the largest distance tracked by this field
+	 */
+	int cap() {
+		return cap;
+	}
+
+	/**
+	 * Returns the smell value seen from {@code root} by a critter facing {@code direction}:
+	 * (distance - 1) * 1000 plus the direction of the first step towards the closest food,
+	 * or {@link SmellEngine#NO_FOOD} if there is none within smelling distance. When critters
+	 * block the shortest path in the field, the answer is left to {@link SmellEngine}.
+	 */
+	int smell(Hex root, int direction) {
+		int state = root.getIndex() * 6 + direction;
+		int total = dist[state];
+		if (total > cap) {
+			return SmellEngine.NO_FOOD;
+		}
+		int firstStep = -1;
+		int slot = root.getIndex();
+		int facing = direction;
+		int left = total;
+		while (left > 0) {
+			int next = -1;
+			for (int d = 0; d < 6; d++) {
+				int n = grid.neighbor(slot, d);
+				if (n < 0 || dist[n * 6 + d] + 1 + turn(facing, d) != left) {
+					continue;
+				}
+				if (!grid.get(n).hasCritter()) {
+					next = d;
+					break;
+				}
+			}
+			if (next < 0) {
+				return SmellEngine.get().smell(grid, root, direction);
+			}
+			if (firstStep < 0) {
+				firstStep = next;
+			}
+			left -= 1 + turn(facing, next);
+			slot = grid.neighbor(slot, next);
+			facing = next;
+		}
+		return (total - 1) * 1000 + firstStep;
+	}
+
+	/**
+	 * Brings the field up to date after the food or rock on {@code h} may have changed
+	 */
+	void update(Hex h) {
+		int slot = h.getIndex();
+		byte now = kindOf(h);
+		byte before = kind[slot];
+		if (now == before) {
+			return;
+		}
+		kind[slot] = now;
+		if (now == FOOD) {
+			for (int f = 0; f < 6; f++) {
+				dist[slot * 6 + f] = 0;
+			}
+			push(0, slot * 6);
+			propagate();
+		}
+		else if (before == ROCK) {
+			for (int f = 0; f < 6; f++) {
+				int value = best(slot, f);
+				dist[slot * 6 + f] = (short) value;
+				if (value <= cap) {
+					push(value, slot * 6 + f);
+				}
+			}
+			propagate();
+		}
+		else {
+			recompute(h);
+		}
+	}
+
+	/**
+	 * Recomputes every state within distance {@code cap} of {@code h}, the only states whose
+	 * distance may have grown when {@code h} lost its food or gained a rock
+	 */
+	private void recompute(Hex h) {
+		if (++epoch == 0) {
+			Arrays.fill(mark, 0);
+			epoch = 1;
+		}
+		int col = h.getColumn();
+		int row = h.getRow();
+		for (int dc = -cap; dc <= cap; dc++) {
+			int low = dc < 0 ? -cap : dc - cap;
+			int high = dc < 0 ? dc + cap : cap;
+			for (int dr = low; dr <= high; dr++) {
+				int slot = grid.index(col + dc, row + dr);
+				if (slot >= 0) {
+					mark[slot] = epoch;
+					Arrays.fill(dist, slot * 6, slot * 6 + 6, far);
+				}
+			}
+		}
+		for (int dc = -cap; dc <= cap; dc++) {
+			int low = dc < 0 ? -cap : dc - cap;
+			int high = dc < 0 ? dc + cap : cap;
+			for (int dr = low; dr <= high; dr++) {
+				int slot = grid.index(col + dc, row + dr);
+				if (slot < 0 || kind[slot] == ROCK) {
+					continue;
+				}
+				if (kind[slot] == FOOD) {
+					Arrays.fill(dist, slot * 6, slot * 6 + 6, (short) 0);
+					push(0, slot * 6);
+					continue;
+				}
+				for (int f = 0; f < 6; f++) {
+					int value = best(slot, f);
+					if (value <= cap) {
+						dist[slot * 6 + f] = (short) value;
+						push(value, slot * 6 + f);
+					}
+				}
+			}
+		}
+		propagate();
+	}
+
+	/**
+	 * Returns the distance from (slot, facing) through its best neighbor, according to the
+	 * current values of the neighbors
+	 */
+	private int best(int slot, int facing) {
+		int value = far;
+		for (int d = 0; d < 6; d++) {
+			int n = grid.neighbor(slot, d);
+			if (n >= 0) {
+				value = Math.min(value, dist[n * 6 + d] + 1 + turn(facing, d));
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Lowers the distances of the states that can reach a queued state, in order of
+	 * distance. A state of a food hex stands for all six of its facings.
+	 */
+	private void propagate() {
+		for (int c = 0; c <= cap; c++) {
+			for (int k = 0; k < counts[c]; k++) {
+				int state = buckets[c][k];
+				if (dist[state] != c) {
+					continue;
+				}
+				int slot = state / 6;
+				int from = kind[slot] == FOOD ? 0 : state - slot * 6;
+				int to = kind[slot] == FOOD ? 5 : from;
+				for (int d = from; d <= to; d++) {
+					int prev = grid.neighbor(slot, (d + 3) % 6);
+					if (prev < 0 || kind[prev] != OPEN) {
+						continue;
+					}
+					for (int f = 0; f < 6; f++) {
+						int value = c + 1 + turn(f, d);
+						if (value <= cap && value < dist[prev * 6 + f]) {
+							dist[prev * 6 + f] = (short) value;
+							push(value, prev * 6 + f);
+						}
+					}
+				}
+			}
+			counts[c] = 0;
+		}
+	}
+
+	/**
+	 * Adds {@code state} to the bucket for distance {@code c}
+	 */
+	private void push(int c, int state) {
+		int[] bucket = buckets[c];
+		if (counts[c] == bucket.length) {
+			bucket = Arrays.copyOf(bucket, bucket.length * 2);
+			buckets[c] = bucket;
+		}
+		bucket[counts[c]++] = state;
+	}
+
+	/**
+	 * Returns the number of turns needed to go from facing {@code from} to facing {@code to}
+	 */
+	private static int turn(int from, int to) {
+		int t = Math.abs(from - to);
+		return t > 3 ? 6 - t : t;
+	}
+
+	/**
+	 * Returns the terrain kind of {@code h}
+	 */
+	private static byte kindOf(Hex h) {
+		if (h.hasRock()) {
+			return ROCK;
+		}
+		return h.hasFood() ? FOOD : OPEN;
+	}
+}
@@ -0,0 +1,96 @@
+package console;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import ast.Program;
+
+/**
+ * The distinct critter programs living in a world. Structurally equal programs are
+ * interned to a single instance, which every critter with that genome shares. Interned
+ * programs are never modified: mutation produces a new program, which is interned in
+ * turn. A genome is forgotten once no critter holds its program any more.
+ * <p>
+ * Genomes can also be looked up by the hash of their program, which is how clients
+ * of the server refer to them.
+ */
+public class GenomeTable {
+	/**
+	 * Interned programs by their text, which determines their structure
+	 */
+	private final Map<String, Genome> genomes = new HashMap<String, Genome>();
+	/**
+	 * The same genomes by the hash of their program
+	 */
+	private final Map<String, Genome> byHash = new HashMap<String, Genome>();
+	/**
+	 * Genomes whose program has been collected, to be removed from {@code genomes}
+	 */
+	private final ReferenceQueue<Program> released = new ReferenceQueue<Program>();
+
+	/**
+	 * Returns the interned program structurally equal to {@code p}, which is {@code p}
+	 * itself if there was none. {@code p} must not be modified afterwards.
+	 */
+	public synchronized Program intern(Program p) {
+		purge();
+		String text = p.toString();
+		Genome g = genomes.get(text);
+		if (g != null) {
+			Program shared = g.get();
+			if (shared != null) {
+				return shared;
+			}
+		}
+		g = new Genome(p, text, released);
+		genomes.put(text, g);
+		byHash.put(g.hash, g);
+		return p;
+	}
+
+	/**
+	 * Returns the interned program whose {@link Program#hash()} is {@code hash}, or null
+	 * if no critter holds one
+	 */
+	public synchronized Program lookup(String hash) {
+		purge();
+		Genome g = byHash.get(hash);
+		return g == null ? null : g.get();
+	}
+
+	/**
+	 * Returns the number of distinct genomes still in use
+	 */
+	public synchronized int size() {
+		purge();
+		return genomes.size();
+	}
+
+	private void purge() {
+		Genome g;
+		while ((g = (Genome) released.poll()) != null) {
+			if (genomes.get(g.text) == g) {
+				genomes.remove(g.text);
+			}
+			if (byHash.get(g.hash) == g) {
+				byHash.remove(g.hash);
+			}
+		}
+	}
+
+	/**
+	 * An interned program, held weakly so that extinct genomes can be collected
+	 */
+	private static class Genome extends WeakReference<Program> {
+		private final String text;
+		private final String hash;
+
+		Genome(Program p, String text, ReferenceQueue<Program> queue) {
+			super(p, queue);
+			this.text = text;
+			hash = p.hash();
+		}
+	}
+}
@@ -4,7 +4,7 @@ package console;
  * A class representing a single hex tile in the world. The coordinates are read
  * as (col, row), and the methods/constructors of the class reflect this.
  */
-public class Hex implements Comparable<Hex>{
+public class Hex {
 	/*
 	 * The row of the Hex tile
 	 */
@@ -13,6 +13,10 @@ public class Hex implements Comparable<Hex>{
 	 * The column of the Hex tile
 	 */
 	private int column;
+	/**
+	 * The slot of this hex tile in the world's grid
+	 */
+	private int index;
 	/**
 	 * The number of food units on a tile
 	 */
@@ -29,18 +33,6 @@ public class Hex implements Comparable<Hex>{
 	 * The last version number that this hex was updated at
 	 */
 	private int lastUpdated;
-	/**
-	 * Variable used for search when the critter smells
-	 */
-	private int distance;
-	/**
-	 * Variable used to keep track of direction of critter smell
-	 */
-	private int direction;
-	/**
-	 * The hex of shortest path 
-	 */
-	private Hex prevHex;
 	/**
 	 * Reference to the world the hex is in
 	 */
@@ -50,18 +42,17 @@ public class Hex implements Comparable<Hex>{
 	 * Constructor for Hex tile at {@code col} and {@code row}
 	 * @param row
 	 * @param column
+	 * @param index - the slot of this tile in the world's grid
 	 */
-	public Hex(int column, int row, World w) {
+	public Hex(int column, int row, int index, World w) {
 		this.w = w;
 		this.row = row;
 		this.column = column;
+		this.index = index;
 		lastUpdated = 0;
 		food = 0;
 		rock = false;
 		critter = null;
-		distance = Integer.MAX_VALUE;
-		direction = 0; 
-		prevHex = null;
 	}
 	
 	/**
@@ -70,6 +61,7 @@ public class Hex implements Comparable<Hex>{
 	 */
 	public void setFood(int f) {
 		food = f;
+		w.terrainChanged(this);
 		update();
 	}
 	
@@ -89,6 +81,7 @@ public class Hex implements Comparable<Hex>{
 		if (!isEmpty())
 			return;
 		food += f;
+		w.terrainChanged(this);
 		update();
 	}
 	
@@ -99,6 +92,7 @@ public class Hex implements Comparable<Hex>{
 		if (!isEmpty())
 			return;
 		rock = true;
+		w.terrainChanged(this);
 		update();
 	}
 	
@@ -108,6 +102,7 @@ public class Hex implements Comparable<Hex>{
 	 */
 	public void removeRock() {
 		rock = false;
+		w.terrainChanged(this);
 		update();
 	}
 	
@@ -184,6 +179,14 @@ public class Hex implements Comparable<Hex>{
 	public int getColumn() {
 		return column;
 	}
+	
+	/**
+	 * 
+	 * @return the slot of this tile in the world's grid
+	 */
+	public int getIndex() {
+		return index;
+	}
 	/**
 	 * Sets {@code critter} to null to indicate that there is no critter stored on this hex.
 	 * Updates the hex.
@@ -193,10 +196,11 @@ public class Hex implements Comparable<Hex>{
 		update();
 	}
 	/**
-	 * 
+	 * Marks this hex as changed in the next version of the world
 	 */
 	public void update() {
 		lastUpdated = w.getVersion() + 1;
+		w.hexUpdated(this);
 	}
 	/**
 	 * Returns what {@code this} hex contains
@@ -216,87 +220,16 @@ public class Hex implements Comparable<Hex>{
 			return 0;
 		}
 	}
-	/**
-	 * Sets the distance of this hex
-	 * @param dist distance to set this hex to relative to origin hex
-	 */
-	public void setDistance(int dist) {
-		this.distance = dist;
-	}
-	/**
-	 * 
-	 * @return the distance of this hex relative to an origin hex
-	 */
-	public int getDistance() {
-		return distance;
-	}
-	/**
-	 * 
-	 * @return the pseudo direction for smell
-	 */
-	public int getDirection() {
-		return direction;
-	}
-	/**
-	 * Sets the direction of this hex
-	 * @param direction that the critter would be facing traveling on this tile
-	 */
-	public void setDirection(int direction) {
-		this.direction = direction;
-	}
-
-	/**
-	 * Sets the hex before it parameter
-	 * @param hex the shortest path hex before this one
-	 */
-	public void setPrev(Hex hex) {
-		this.prevHex = hex;
-	}
-	/**
-	 * 
-	 * @return the shortest path hex before this one
-	 */
-	public Hex getPrev() {
-		return prevHex;
-	}
-	@Override
-	public int compareTo(Hex hex) {
-		if (this.distance > hex.distance) {
-			return 1;
-		}
-		else if(this.distance == hex.distance) {
-			return 0;
-		}
-		else {
-			return -1;
-		}
-	}
-	
 	public Hex getHexInDirection(int distance, int direction) {
 		if (direction >= 6) {
 			direction -= 6;
 		}
-		Hex hex = null;
-		switch(direction) {
-		case 0:
-			hex = w.getHex(column, row + distance); 
-			break; 
-		case 1: 
-			hex = w.getHex(column + distance, row + distance); 
-			break;
-		case 2:
-			hex = w.getHex(column + distance, row); 
-			break;
-		case 3:
-			hex = w.getHex(column, row - distance);
-			break;
-		case 4:
-			hex = w.getHex(column - distance, row - distance);
-			break;
-		case 5:
-			hex = w.getHex(column - distance, row); 
-			break;
+		if (direction < 0 || direction >= 6) {
+			return null;
+		}
+		if (distance == 1) {
+			return w.getNeighbor(this, direction);
 		}
-		return hex;
+		return w.getHexInDirection(column, row, distance, direction);
 	}
 }
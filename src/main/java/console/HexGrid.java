@@ -0,0 +1,121 @@
+package console;
+
+/**
+ * A dense, index-addressed store for the hex tiles of a world. The hex at (col, row)
+ * lives in slot {@code col * height + (row - (col + 1) / 2)}, and the six neighbors of
+ * every slot are computed once when the grid is built, so walking the grid never
+ * builds keys, boxes coordinates or hashes.
+ */
+class HexGrid {
+	/**
+	 * Change in column when stepping one tile in each of the six directions
+	 */
+	static final int[] DCOL = {0, 1, 1, 0, -1, -1};
+	/**
+	 * Change in row when stepping one tile in each of the six directions
+	 */
+	static final int[] DROW = {1, 1, 0, -1, -1, 0};
+	/**
+	 * Number of columns in the grid
+	 */
+	private final int columns;
+	/**
+	 * Number of hex tiles in one column
+	 */
+	private final int height;
+	/**
+	 * The hex tiles, stored column by column
+	 */
+	private final Hex[] hexes;
+	/**
+	 * Slot of the neighbor of slot {@code i} in direction {@code d}, stored at {@code i * 6 + d}.
+	 * -1 if the neighbor is off the grid.
+	 */
+	private final int[] neighbors;
+
+	/**
+	 * Creates a grid of {@code columns} columns of {@code height} hex tiles each,
+	 * filled with empty hex tiles belonging to {@code w}
+	 */
+	HexGrid(int columns, int height, World w) {
+		this.columns = Math.max(columns, 0);
+		this.height = Math.max(height, 0);
+		hexes = new Hex[this.columns * this.height];
+		neighbors = new int[hexes.length * 6];
+		for (int col = 0; col < this.columns; col++) {
+			int strtrow = (col + 1) / 2;
+			for (int row = strtrow; row < strtrow + this.height; row++) {
+				int i = index(col, row);
+				hexes[i] = new Hex(col, row, i, w);
+				for (int d = 0; d < 6; d++) {
+					neighbors[i * 6 + d] = index(col + DCOL[d], row + DROW[d]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot of the hex at {@code col} and {@code row}, -1 if the coordinates are out-of-bounds.
+	 */
+	int index(int col, int row) {
+		if (col < 0 || col >= columns)
+			return -1;
+		int offset = row - (col + 1) / 2;
+		if (offset < 0 || offset >= height)
+			return -1;
+		return col * height + offset;
+	}
+
+	/**
+	 * Returns the hex at {@code col} and {@code row}, null if the coordinates are out-of-bounds.
+	 */
+	Hex get(int col, int row) {
+		int i = index(col, row);
+		return i < 0 ? null : hexes[i];
+	}
+
+	/**
+	 * Returns the hex stored in slot {@code index}, null if there is no such slot.
+	 */
+	Hex get(int index) {
+		return index < 0 || index >= hexes.length ? null : hexes[index];
+	}
+
+	/**
+	 * Returns the slot next to slot {@code index} in {@code direction}, -1 if it is off the grid.
+	 * @param direction - a direction in the range [0, 6)
+	 */
+	int neighbor(int index, int direction) {
+		return neighbors[index * 6 + direction];
+	}
+
+	/**
+	 * Returns the hex next to {@code h} in {@code direction}, null if it is off the grid.
+	 * @param direction - a direction in the range [0, 6)
+	 */
+	Hex neighbor(Hex h, int direction) {
+		int i = neighbors[h.getIndex() * 6 + direction];
+		return i < 0 ? null : hexes[i];
+	}
+
+	/**
+	 * Returns the hex {@code distance} tiles away from (col, row) in {@code direction},
+	 * null if it is off the grid.
+	 * @param direction - a direction in the range [0, 6)
+	 */
+	Hex inDirection(int col, int row, int distance, int direction) {
+		if (distance == 1) {
+			int i = index(col, row);
+			if (i >= 0)
+				return get(neighbors[i * 6 + direction]);
+		}
+		return get(col + DCOL[direction] * distance, row + DROW[direction] * distance);
+	}
+
+	/**
+	 * Returns the number of slots in the grid
+	 */
+	int size() {
+		return hexes.length;
+	}
+}
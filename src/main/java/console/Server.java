@@ -5,24 +5,29 @@ import static spark.Spark.port;
 import static spark.Spark.post;
 import static spark.Spark.delete;
 
-import java.util.ArrayList;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Hashtable;
 import java.util.Random;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.google.gson.Gson;
 
+import ast.Program;
 import console.DummyClassLibrary.*;
+import console.WorldSnapshot.CritterView;
 import spark.Request;
+import spark.Response;
 
 /**
- * A server that hosts a critter world on it
+ * A server that hosts a critter world on it. Requests that change the world are applied
+ * one at a time by its {@link SimulationScheduler}, and requests that read the world are
+ * served from the snapshots it publishes.
  */
 public class Server {
-	/**
-	 * The world that is running on the server
-	 */
-	private World world;
 	/**
 	 * Hash table of session numbers and their corresponding Levels of access
 	 */
@@ -43,6 +48,24 @@ public class Server {
 	 * The password required for a session to have admin privileges
 	 */
 	private String adminPassword;
+	/**
+	 * The species uploaded with post("/species"), which outlive the world they were uploaded to
+	 */
+	private SpeciesRegistry species;
+	/**
+	 * Applies every change to the world on one thread, and runs the world continuously
+	 * after a post("/run") request. The state of the world is read from the snapshots it
+	 * publishes.
+	 */
+	private SimulationScheduler scheduler;
+	/**
+	 * The most changes that can wait to be applied to the world before requests are turned away
+	 */
+	private static final int MAX_PENDING_CHANGES = 1024;
+	/**
+	 * How long a change may wait to be applied before it is withdrawn and the request turned away
+	 */
+	private static final int CHANGE_TIMEOUT_SECONDS = 30;
 	/**
 	 * Constructor for a server object with the specified passwords.
 	 */
@@ -54,6 +77,7 @@ public class Server {
 		
 		sessions = new Hashtable<Integer, Level>();
 		sessions.put(1, Level.admin);
+		species = new SpeciesRegistry();
 	}
 	/**
 	 * Starts running a server
@@ -62,14 +86,12 @@ public class Server {
 		//Run the server on a port
 		port(port);
 		
-		//Create a new ReadWrite lock
-		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-		
 		//Create a new GSON converter
 		Gson gson = new Gson();
 		
 		//Create an empty world of default size
-		world = new World();
+		scheduler = new SimulationScheduler(new World(), MAX_PENDING_CHANGES);
+		scheduler.start();
 		
 		
 		/**
@@ -125,38 +147,40 @@ public class Server {
 			gson::toJson);
 		
 		/**
-		 * Read locked action.
+		 * Read locked action. Served from the latest snapshot published by the world.
 		 * 
 		 * Responds with the json list of all the critters in the world. The critter info shown
 		 * Is the id #, species_id name, position, direction, and memory values. If the critter
 		 * was created by the same {@code session_id} that is currently doing the call, then the info will
-		 * also show the {@code program} and the most {@code recently_executed_rule}.
+		 * also show the {@code program}, its {@code program_hash} and the most {@code recently_executed_rule}.
+		 * With {@code inline_programs=false}, only the {@code program_hash} is shown, and the program can
+		 * be fetched once from get("/program/:hash").
 		 */
 		get("/critters",
 			(request, response)
 				-> {
 					if(checkSessionId(request, Level.read)) {
-						lock.readLock().lock(); //Read lock
+						WorldSnapshot snapshot = scheduler.world().getSnapshot();
 						
 						response.header("Content-Type", "application/json");
 						int sessionId = Integer.parseInt(request.queryParams("session_id"));
-						CritterInfo[] critList = new CritterInfo[world.getCritters().size()];
-						for (int i = 0; i < world.getCritters().size(); i++) {
-							Critter critter = world.getCritters().get(i);
-							if (sessionId == critter.getSessionId() || sessions.get(sessionId) == Level.admin) {
-								critList[i] = new CritterInfo(critter.getId(),
-										critter.getSpecies(), critter.getRow(), critter.getCol(),
-										critter.getDirection(), critter.getMem(), critter.getProgram(), 
-										critter.getLastRule());
+						boolean inline = inlinePrograms(request);
+						CritterInfo[] critList = new CritterInfo[snapshot.critters().size()];
+						for (int i = 0; i < critList.length; i++) {
+							CritterView critter = snapshot.critters().get(i);
+							if (sessionId == critter.sessionId() || sessions.get(sessionId) == Level.admin) {
+								critList[i] = new CritterInfo(critter.id(),
+										critter.species(), critter.row(), critter.col(),
+										critter.direction(), critter.mem(), critter.program(), 
+										critter.lastRule(), inline);
 							}
 							else {
-								critList[i] = new CritterInfo(critter.getId(),
-										critter.getSpecies(), critter.getRow(), critter.getCol(),
-										critter.getDirection(), critter.getMem());
+								critList[i] = new CritterInfo(critter.id(),
+										critter.species(), critter.row(), critter.col(),
+										critter.direction(), critter.mem());
 							}
 						}
 						
-						lock.readLock().unlock(); //Read unlock
 						return critList;
 					} else {
 						return error401();
@@ -172,11 +196,15 @@ public class Server {
 		 * critters to be placed, or the {@code num} of critters to be placed. The positions must be held in
 		 * a list of objects that have the parameters {@code row} and {@code column}.
 		 * 
+		 * Instead of the {@code species_id}, {@code program} and {@code mem}, the body can hold the
+		 * {@code registry_id} of a species uploaded with post("/species"), whose program is not parsed again.
+		 * 
 		 * The response should be the species id and the id's of the critters that were just added.
 		 * {
 		 * 		"species_id": "",
 		 * 		"ids": []
 		 * }
+		 * If the program has a syntax error or the memory is too small, the response is an error 406.
 		 */
 		post("/critters",
 			(request, response)
@@ -187,60 +215,113 @@ public class Server {
 						String json = request.body();
 						AddCritter add = gson.fromJson(json, AddCritter.class);
 						
-						if (add == null || add.species_id() == null ||
-								add.program() == null || add.mem() == null) {
+						if (add == null) {
 							return error400();
 						}
-						else if ( !(add.positions() == null ^ add.num() == null) ) {
+						SpeciesRegistry.Species registered = null;
+						if (add.registry_id() != null) {
+							registered = species.get(add.registry_id());
+							if (registered == null) {
+								return error406();
+							}
+						}
+						else if (add.species_id() == null || add.program() == null || add.mem() == null) {
+							return error400();
+						}
+						if ( !(add.positions() == null ^ add.num() == null) ) {
 							//Check if either both arguments are there, or neither arguments
 							//True if there is either a value num > 0 or a position in positions
 							//But not both at a time, and not neither.
 							return error400();
 						}
+						if (add.num() != null && add.num() < 0) {
+							return error406();
+						}
+						if (registered == null) {
+							// Parsed here rather than on the simulation thread
+							registered = SpeciesRegistry.unregistered(add.species_id(), add.program(), add.mem(),
+									scheduler.world().getPrograms());
+							if (registered == null) {
+								return error406();
+							}
+						}
 
 
 						
-						world.incVersion();
-						boolean placed = false;
-						boolean usePositions = add.positions() != null;
-						int[] ids = usePositions ? new int[add.positions().length] : new int[add.num()];
-						
-						lock.writeLock().lock(); //Write lock
-						
-						if (usePositions) {
-							for (int i = 0; i < add.positions().length; i++) {
-								Position p = add.positions()[i];
-								Critter critter = world.placeCritter(add, p);
-								if (critter != null) {
-									critter.setId(world.getCrittersPlaced());
-									ids[i] = world.getCrittersPlaced();
-									placed = true;
-									world.incCrittersPlaced();
-								}
-								else {
-									ids[i] = -1;
+						SpeciesRegistry.Species from = registered;
+						return change(response, batch -> {
+							World world = batch.world();
+							boolean usePositions = add.positions() != null;
+							int[] ids = usePositions ? new int[add.positions().length] : new int[add.num()];
+							
+							if (usePositions) {
+								for (int i = 0; i < add.positions().length; i++) {
+									Position p = add.positions()[i];
+									Critter critter = world.placeCritter(from, p);
+									if (critter != null) {
+										critter.setId(world.getCrittersPlaced());
+										ids[i] = world.getCrittersPlaced();
+										batch.changed();
+										world.incCrittersPlaced();
+									}
+									else {
+										ids[i] = -1;
+									}
 								}
 							}
-						}
-						else {
-							Critter[] critList = world.loadCritters(add, add.num());
-							for (int i = 0; i < add.num(); i++) {
-								Critter critter = critList[i];
-								if (critter != null) {
-									ids[i] = world.getCrittersPlaced();
-									placed = true;
-								}
-								else {
-									ids[i] = -1;
+							else {
+								Critter[] critList = world.loadCritters(from, add.num());
+								for (int i = 0; i < add.num(); i++) {
+									Critter critter = critList[i];
+									if (critter != null) {
+										ids[i] = critter.getId();
+										batch.changed();
+									}
+									else {
+										ids[i] = -1;
+									}
 								}
 							}
-						}
+							
+							return new CrittersAdded(from.name(), ids);
+						});
+					} else {
+						return error401();
+					}
+				},
+			gson::toJson);
+		
+		/**
+		 * Upload a species once, to place its critters with post("/critters") by the id it is given.
+		 * Request body should be a json that holds the {@code species_id}, {@code program} and {@code mem}
+		 * of the species. The program is parsed and checked here, so that placing critters does not have
+		 * to send or parse it again. Uploading the same species again gives the same id.
+		 * 
+		 * The response holds the id, along with the {@code program_hash} of the program.
+		 * {
+		 * 		"species_id": "",
+		 * 		"registry_id": 1,
+		 * 		"program_hash": ""
+		 * }
+		 * If the program has a syntax error or the memory is too small, the response is an error 406.
+		 */
+		post("/species",
+			(request, response)
+				-> {
+					if (checkSessionId(request, Level.write)) {
+						response.header("Content-Type", "application/json");
 						
-						if (!placed)
-							world.setVersion(world.getVersion() - 1);
+						AddSpecies add = gson.fromJson(request.body(), AddSpecies.class);
+						if (add == null || add.species_id() == null ||
+								add.program() == null || add.mem() == null) {
+							return error400();
+						}
 						
-						lock.writeLock().unlock(); //Write unlock
-						return new CrittersAdded(add.species_id(), ids);
+						SpeciesRegistry.Species s = species.register(add.species_id(), add.program(), add.mem());
+						if (s == null) {
+							return error406();
+						}
+						return new SpeciesAdded(s.name(), s.id(), s.program().hash());
 					} else {
 						return error401();
 					}
@@ -248,9 +329,10 @@ public class Server {
 			gson::toJson);
 		
 		/**
-		 * Read locked action.
+		 * Read locked action. Served from the latest snapshot published by the world.
 		 * 
 		 * Get the critter information of a specific critter given an id number.
+		 * Takes {@code inline_programs} as get("/critters") does.
 		 */
 		get("/critter/:id",
 			(request, response)
@@ -266,31 +348,25 @@ public class Server {
 							return error406();
 						}
 						
-						lock.readLock().lock(); //Read lock
-						if (num <= 0 || num >= world.getCrittersPlaced()) {
-							lock.readLock().unlock(); //Read unlock
+						WorldSnapshot snapshot = scheduler.world().getSnapshot();
+						if (num <= 0 || num >= snapshot.crittersPlaced()) {
 							return error406();
 						}
 						
-						for (Critter critter : world.getCritters()) {
-							if (critter.getId() == num) {
-								if (sessionId == critter.getSessionId() || sessions.get(sessionId) == Level.admin) {
-									lock.readLock().unlock(); //Read unlock
-									lock.writeLock().unlock();
-									return new CritterInfo(critter.getId(),	critter.getSpecies(),
-											critter.getRow(), critter.getCol(), critter.getDirection(),
-											critter.getMem(), critter.getProgram(), critter.getLastRule());
-								}
-								else {
-									lock.readLock().unlock(); //Read unlock
-									return new CritterInfo(critter.getId(), critter.getSpecies(), critter.getRow(),
-											critter.getCol(), critter.getDirection(), critter.getMem());
-								}
-							}
+						CritterView critter = snapshot.critter(num);
+						if (critter == null) {
+							return "The critter id specified belongs to a critter that has died.";
+						}
+						if (sessionId == critter.sessionId() || sessions.get(sessionId) == Level.admin) {
+							return new CritterInfo(critter.id(), critter.species(),
+									critter.row(), critter.col(), critter.direction(),
+									critter.mem(), critter.program(), critter.lastRule(),
+									inlinePrograms(request));
+						}
+						else {
+							return new CritterInfo(critter.id(), critter.species(), critter.row(),
+									critter.col(), critter.direction(), critter.mem());
 						}
-						
-						lock.readLock().unlock(); //Read unlock
-						return "The critter id specified belongs to a critter that has died.";
 					} else {
 						return error401();
 					}
@@ -317,38 +393,33 @@ public class Server {
 							return error406();
 						}
 						
-						lock.readLock().lock(); //Read lock
-						if (num <= 0 || num >= world.getCrittersPlaced()) {
-							lock.readLock().unlock(); //Read unlock
-							return error406();
-						}
-						
-						for (int i = 0; i < world.getCritters().size(); i++) {
-							Critter critter = world.getCritters().get(i);
-							if (critter.getId() == num) {
-								if (sessionId == critter.getSessionId() || sessions.get(sessionId) == Level.admin) {
-									lock.readLock().unlock(); //Read unlock
-									lock.writeLock().lock(); //Write lock
-									
-									int row = critter.getRow();
-									int col = critter.getCol();
-									
-									world.getCritters().remove(i);
-									world.getHex(col, row).removeCritter();
-									world.getDeadCritters().add(new DeadCritter(world.getVersion(), num));
-									world.incVersion();
-									
-									lock.writeLock().unlock(); //Write unlock
-									return new SetMessage(true);
-								}
-								else {
-									lock.readLock().unlock(); //Read unlock
-									return error401();
+						return change(response, batch -> {
+							World world = batch.world();
+							if (num <= 0 || num >= world.getCrittersPlaced()) {
+								return error406();
+							}
+							
+							for (int i = 0; i < world.getCritters().size(); i++) {
+								Critter critter = world.getCritters().get(i);
+								if (critter != null && critter.getId() == num) {
+									if (sessionId == critter.getSessionId() || sessions.get(sessionId) == Level.admin) {
+										int row = critter.getRow();
+										int col = critter.getCol();
+										
+										world.getCritters().remove(i);
+										world.getHex(col, row).removeCritter();
+										world.getDeadCritters().add(new DeadCritter(world.getVersion(), num));
+										batch.changed();
+										return new SetMessage(true);
+									}
+									else {
+										return error401();
+									}
 								}
 							}
-						}
-						
-						return "The critter id specified belongs to a critter that has died.";
+							
+							return "The critter id specified belongs to a critter that has died.";
+						});
 					} else {
 						return error401();
 					}
@@ -374,7 +445,6 @@ public class Server {
 						Description description = gson.fromJson(json, Description.class);
 						
 						if (description == null) {
-							lock.writeLock().unlock();
 							return error400();
 						}
 						
@@ -391,12 +461,10 @@ public class Server {
 							return error406();
 						}
 						
-						lock.writeLock().lock(); //Write lock
-						w.setVersion(world.getVersion() + 1);
-						w.setWorldChanges(world);
-						world = w;
-						lock.writeLock().unlock(); //Write unlock
-						return "Ok";
+						return change(response, batch -> {
+							batch.replaceWorld(w);
+							return "Ok";
+						});
 					} else {
 						return error401();
 					}
@@ -404,7 +472,7 @@ public class Server {
 			gson::toJson);
 		
 		/**
-		 * Read locked action.
+		 * Read locked action. Served from the latest snapshot published by the world.
 		 * 
 		 * Return the status of the world at its current timestep and version number.
 		 * Takes in arguments {@code update_since}, for specific updates on the world, as well as
@@ -416,12 +484,20 @@ public class Server {
 		 * parameters (default set to zero), the {@code rate} that the world is changing, the {@code name}
 		 * of the world, the {@code population}, size in {@code rows} and {@code cols}, a list of the ids of 
 		 * the {@code dead_critters}, and a list of the the changes to the hex's in the world, held in {@code state}.
+		 * Takes {@code inline_programs} as get("/critters") does. The response is written to the client
+		 * while the hex tiles are scanned, by a {@link WorldStateWriter}.
+		 * 
+		 * The same information is sent in a compact binary form instead, with content type
+		 * {@link WorldStateWriter#MEDIA_TYPE}, if the {@code Accept} header includes that type or
+		 * {@code format=binary} is passed. It can be read with {@link WorldStateReader}.
 		 */
 		get("/world",
 			(request, response)
 				-> {
 					if (checkSessionId(request, Level.read)) {
 						response.header("Content-Type", "application/json");
+						World current = scheduler.world();
+						WorldSnapshot snapshot = current.getSnapshot();
 						int update_since, from_row, to_row, from_col, to_col;
 						try {
 							update_since = request.queryParams().contains("update_since") ?
@@ -429,18 +505,18 @@ public class Server {
 							from_row = request.queryParams().contains("from_row") ?
 									Integer.parseInt(request.queryParams("from_row")) : 0;
 							to_row = request.queryParams().contains("to_row") ?
-									Integer.parseInt(request.queryParams("to_row")) : world.getRows();
+									Integer.parseInt(request.queryParams("to_row")) : snapshot.rows();
 							from_col = request.queryParams().contains("from_col") ?
 									Integer.parseInt(request.queryParams("from_col")) : 0;
 							to_col = request.queryParams().contains("to_col") ?
-									Integer.parseInt(request.queryParams("to_col")) : world.getColumns();
+									Integer.parseInt(request.queryParams("to_col")) : snapshot.columns();
 						} catch (NumberFormatException e) {
 							return error400();
 						}
 						
 						//Check to_col and from_col to make sure they are valid inputs
-						if (update_since > world.getVersion()+1 || world.getHex(from_col, from_row) == null
-								|| world.getHex(to_col-1, to_row-1) == null || from_col > to_col || from_row > to_row) {
+						if (update_since > snapshot.version()+1 || !snapshot.hasHex(from_col, from_row)
+								|| !snapshot.hasHex(to_col-1, to_row-1) || from_col > to_col || from_row > to_row) {
 							/*System.out.println();
 							System.out.println(update_since > world.getVersion()+1);
 							System.out.println(world.getHex(from_col, from_row) == null);
@@ -453,59 +529,62 @@ public class Server {
 							return error406();
 						}
 						
-						lock.readLock().lock(); //Read lock
-						
-						ArrayList<Integer> ids = new ArrayList<Integer>();
-						for (DeadCritter d : world.getDeadCritters()) {
-							if (d.timeOfDeath() > update_since)
-								ids.add(d.id());
-						}
+						boolean inline = inlinePrograms(request);
+						int sessionId = Integer.parseInt(request.queryParams("session_id"));
 						
-						//Increase efficiency?
-						ArrayList<StateInfo> state = new ArrayList<StateInfo>();
-						for (int i = from_col; i < to_col; i++) {
-							int strtrow = (i + 1) / 2;
-							for (int j = strtrow; j < strtrow + world.getHeight() && j < to_row; j++) {
-								Hex h = world.getHex(i, j);
-								if (h.getLastUpdated() > update_since) {
-									if (h.hasRock()) {
-										state.add(new RockInfo(j, i));
-									} else if (h.hasFood()) {
-										state.add(new FoodInfo(j, i, h.getFood()));
-									} else if (h.hasCritter()) {
-										Critter critter = h.getCritter();
-										int sessionId = Integer.parseInt(request.queryParams("session_id"));
-										
-										if (sessionId == critter.getSessionId() || sessions.get(sessionId) == Level.admin) {
-											state.add(new CritterInfo(critter.getId(),
-													critter.getSpecies(), critter.getRow(), critter.getCol(),
-													critter.getDirection(), critter.getMem(), critter.getProgram(), 
-													critter.getLastRule(), Type.critter));
-										}
-										else {
-											state.add(new CritterInfo(critter.getId(),
-													critter.getSpecies(), critter.getRow(), critter.getCol(),
-													critter.getDirection(), critter.getMem(), Type.critter));
-										}
-									} else {
-										if (update_since > 0)
-											state.add(new NothingInfo(j, i));
-									}
-								}
-							}
+						WorldStateWriter state = new WorldStateWriter(snapshot, sessionId,
+								sessions.get(sessionId) == Level.admin, inline);
+						String accept = request.headers("Accept");
+						if ("binary".equals(request.queryParams("format"))
+								|| (accept != null && accept.contains(WorldStateWriter.MEDIA_TYPE))) {
+							response.header("Content-Type", WorldStateWriter.MEDIA_TYPE);
+							state.writeBinary(response.raw().getOutputStream(), update_since, current.getRate(),
+									from_row, to_row, from_col, to_col);
+						} else {
+							Writer out = new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8);
+							state.write(out, update_since, current.getRate(), from_row, to_row, from_col, to_col);
 						}
-						
-						lock.readLock().unlock(); //Read unlock
-						WorldInfo w = new WorldInfo(world.getNumsteps(), world.getVersion() + 1, update_since, world.getRate(),
-									world.getName(), world.getCritters().size(), world.getRows(), world.getColumns(),
-									ids, state);
-						return w;
+						// The response is committed once written, so nothing returned here is sent
+						return "";
 					} else {
 						return error401();
 					}
 				},
 			gson::toJson);
 		
+		/**
+		 * Read locked action.
+		 * 
+		 * Responds with the text of the critter program whose {@code program_hash} is {@code hash}.
+		 * A program never changes under its hash, so the response can be cached for good, and a
+		 * request whose {@code If-None-Match} header holds the hash is answered with status 304
+		 * and no body.
+		 */
+		get("/program/:hash",
+			(request, response)
+				-> {
+					if (checkSessionId(request, Level.read)) {
+						String hash = request.params(":hash");
+						String etag = "\"" + hash + "\"";
+						response.header("ETag", etag);
+						response.header("Cache-Control", "private, max-age=31536000, immutable");
+						if (etag.equals(request.headers("If-None-Match"))) {
+							response.status(304);
+							return "";
+						}
+						
+						Program program = scheduler.world().getGenomes().lookup(hash);
+						if (program == null) {
+							response.status(404);
+							return error404();
+						}
+						response.header("Content-Type", "text/plain; charset=utf-8");
+						return program.toString();
+					} else {
+						return error401();
+					}
+				});
+		
 		/**
 		 * Write locked action. (Still Implementing)
 		 * 
@@ -523,34 +602,29 @@ public class Server {
 						if (gen == null || (gen.type() == Type.rock && gen.value() != 0)) {
 							return error400();
 						}
-						else if (!world.getHex(gen.col(), gen.row()).isEmpty()) {
-							return error406();
-						}
-						
-						lock.writeLock().lock(); //Write lock
 						
-						if (gen.type() == Type.food) {
-							FoodInfo food = new FoodInfo(gen.row(), gen.col(), gen.value());
-							Hex h = world.getHex(food.col(), food.row());
-							h.addFood(food.value());
-							world.getFood().add(h);
-							world.incVersion();
-							lock.writeLock().unlock(); //Write unlock
-							return "Ok";
-						}
-						else if (gen.type() == Type.rock) {
-							RockInfo rock = new RockInfo(gen.row(), gen.col());
-							Hex h = world.getHex(rock.col(), rock.row());
-							h.setRock();
-							world.getRocks().add(h);
-							world.incVersion();
-							lock.writeLock().unlock(); //Write unlock
-							return "Ok";
-						}
-						else {
-							lock.writeLock().unlock(); //Write unlock
-							return error400();
-						}
+						return change(response, batch -> {
+							World world = batch.world();
+							Hex h = world.getHex(gen.col(), gen.row());
+							if (h == null || !h.isEmpty()) {
+								return error406();
+							}
+							if (gen.type() == Type.food) {
+								h.addFood(gen.value());
+								world.getFood().add(h);
+								batch.changed();
+								return "Ok";
+							}
+							else if (gen.type() == Type.rock) {
+								h.setRock();
+								world.getRocks().add(h);
+								batch.changed();
+								return "Ok";
+							}
+							else {
+								return error400();
+							}
+						});
 					} else {
 						return error401();
 					}
@@ -567,24 +641,21 @@ public class Server {
 			(request, response)
 				-> {
 					if (checkSessionId(request, Level.write)) {
-						lock.readLock().lock(); //Read lock
-						
 						response.header("Content-Type", "application/json");
 						String json = request.body();
-						Step step = gson.fromJson(json, Step.class);
-						if (step == null) {
-							step = new Step();
-						}
-						else if (step.count() < 0 || world.getRate() > 0) {
-							lock.readLock().unlock(); //Read unlock
+						Step parsed = gson.fromJson(json, Step.class);
+						if (parsed != null && parsed.count() < 0) {
 							return error406();
 						}
+						Step step = parsed == null ? new Step() : parsed;
 						
-						lock.readLock().unlock(); //Read unlock
-						lock.writeLock().lock(); //Write lock
-						world.advanceTime(step.count());
-						lock.writeLock().unlock(); //Write unlock
-						return "Ok";
+						return change(response, batch -> {
+							if (batch.isRunning()) {
+								return error406();
+							}
+							batch.advanceTime(step.count());
+							return "Ok";
+						});
 					} else {
 						return error401();
 					}
@@ -595,7 +666,10 @@ public class Server {
 		 * Write locked action.
 		 * 
 		 * Run the world continuously at a rate of x times per second. Takes in only the argument
-		 * the argument rate, which is a float.
+		 * the argument rate, which is a float. A rate of 0 stops the world, and a rate that is negative
+		 * or above {@link SimulationScheduler#MAX_RATE} is an error 406. The steps are taken by
+		 * the server's {@link SimulationScheduler} between the changes it applies, and the rate the world
+		 * actually reaches is reported in get("/world").
 		 * 
 		 * Returns the same rate that was sent in the request.
 		 */
@@ -607,15 +681,14 @@ public class Server {
 						response.header("Content-Type", "application/json");
 						String json = request.body();
 						Rate rate = gson.fromJson(json, Rate.class);
-						if (rate == null || rate.rate() < 0) {
-							lock.writeLock().unlock(); //Write unlock
+						if (rate == null || !(rate.rate() >= 0 && rate.rate() <= SimulationScheduler.MAX_RATE)) {
 							return error406();
 						}
-
-						lock.writeLock().lock(); //Write lock
-						world.run(rate.rate());
-						lock.writeLock().unlock(); //Write unlock
-						return rate;
+						
+						return change(response, batch -> {
+							batch.run(rate.rate());
+							return rate;
+						});
 					} else {
 						return error401();
 					}
@@ -648,6 +721,48 @@ public class Server {
 		}
 	}
 	/**
+	 * Applies {@code command} to the world on the simulation thread, along with whatever
+	 * other changes are waiting, and returns its result once the world is published.
+	 * @return The result of the command, or an error 503 message, with the status of
+	 * {@code response} set to 503, if too many changes are already waiting or the command
+	 * was not applied within {@link #CHANGE_TIMEOUT_SECONDS}.
+	 */
+	private Object change(Response response, SimulationScheduler.Command<Object> command) {
+		try {
+			return scheduler.call(command, CHANGE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (RejectedExecutionException | TimeoutException e) {
+			response.status(503);
+			return error503();
+		}
+	}
+	/**
+	 * Method handler for Error 503 Service Unavailable problems.
+	 * 
+	 * The server has too many changes to the world waiting to take on another one.
+	 * 
+	 * @return String message for Error 503 problems.
+	 */
+	private String error503() {
+		return "Error code 503. The server is too busy to take this request. Try again later.";
+	}
+	/**
+	 * Returns whether the programs of critters should be sent as text along with their
+	 * hash, which they are unless the request has {@code inline_programs=false}
+	 */
+	private boolean inlinePrograms(Request request) {
+		return !"false".equals(request.queryParams("inline_programs"));
+	}
+	/**
+	 * Method handler for Error 404 Not Found problems.
+	 * 
+	 * The request refers to something the server does not have.
+	 * 
+	 * @return String message for Error 404 problems.
+	 */
+	private String error404() {
+		return "Error code 404. The requested resource could not be found.";
+	}
+		/**
 	 * Method handler for Error 406 Not Acceptable problems.
 	 * 
 	 * The request contains unacceptable values for the specific request.
@@ -0,0 +1,436 @@
+package console;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The one thread that changes a server's world. Every change is submitted as a
+ * {@link Command} through a bounded queue and applied on this thread, so changes are
+ * applied one at a time without locking. Commands waiting in the queue together are
+ * applied as one batch: the world goes to a new version once for all of them, and a
+ * snapshot is published once they are all applied and before any of their results are
+ * returned. A command or step that throws, even an {@link Error}, fails on its own and
+ * leaves the thread running.
+ * <p>
+ * Between batches, the thread runs the world at a fixed number of steps per second
+ * without the JavaFX toolkit. Steps are due at a fixed rate from the moment the world
+ * starts running. Each time the thread wakes, it takes the steps that have come due
+ * since, so rates above what a timer can wake for are reached by taking several steps
+ * at once. It takes them one at a time for at most {@link #TICK_NANOS}, and stops early
+ * when a command is waiting, so that commands are never held up by more than a tick of
+ * steps. A world that falls behind catches up on at most {@link #MAX_LAG_NANOS} of
+ * steps, and the steps due before that, or still due when it stops, are dropped. The
+ * rate actually achieved is measured about once a second and reported through
+ * {@link World#getRate()}.
+ */
+public class SimulationScheduler {
+	/**
+	 * The most steps per second a world can be run at
+	 */
+	public static final double MAX_RATE = 100000;
+	/**
+	 * The shortest time the thread sleeps between taking steps, and the longest it
+	 * takes steps for at once
+	 */
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	/**
+	 * How far behind its schedule the world may fall before steps are dropped
+	 */
+	private static final long MAX_LAG_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+	/**
+	 * How long the achieved rate is measured over
+	 */
+	private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(1);
+	/**
+	 * The most commands applied in one batch
+	 */
+	private static final int MAX_BATCH = 64;
+
+	/**
+	 * A change to the world, applied on the simulation thread
+	 */
+	public interface Command<T> {
+		/**
+		 * Applies this command to {@code batch.world()}, calling {@link Batch#changed()}
+		 * if it changed the world
+		 *
+		 * @return the result of the command
+		 */
+		T apply(Batch batch);
+	}
+
+	/**
+	 * Commands waiting to be applied, with the futures of their results
+	 */
+	private final BlockingQueue<Task<?>> queue;
+	/**
+	 * The world being changed, replaced only on the simulation thread
+	 */
+	private volatile World world;
+	private Thread thread;
+
+	// Running state, used only on the simulation thread
+	/**
+	 * The number of steps per second the world is running at, 0 while it is not running
+	 */
+	private double rate;
+	/**
+	 * Nanoseconds between steps
+	 */
+	private long period;
+	/**
+	 * When the next step is due
+	 */
+	private long due;
+	/**
+	 * When the thread next wakes up to take steps
+	 */
+	private long wake;
+	private long measuredFrom;
+	private long measuredSteps;
+
+	/**
+	 * Creates a scheduler for {@code w} that holds up to {@code capacity} commands
+	 * waiting to be applied. The world is published, and must not be changed but
+	 * through this scheduler once it is started.
+	 */
+	public SimulationScheduler(World w, int capacity) {
+		queue = new ArrayBlockingQueue<Task<?>>(capacity);
+		world = w;
+		w.publish();
+	}
+
+	/**
+	 * Starts the simulation thread
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("already started");
+		}
+		thread = new Thread(this::loop, "simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the simulation thread, waiting for the batch or step in progress to finish.
+	 * Commands still in the queue are not applied.
+	 */
+	public synchronized void shutdown() {
+		if (thread == null) {
+			return;
+		}
+		thread.interrupt();
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		for (Task<?> t : queue) {
+			t.future.cancel(false);
+		}
+		queue.clear();
+		world.setRate(0);
+		thread = null;
+	}
+
+	/**
+	 * Returns the world being changed. Its state should be read from
+	 * {@link World#getSnapshot()}.
+	 */
+	public World world() {
+		return world;
+	}
+
+	/**
+	 * Queues {@code command} to be applied on the simulation thread
+	 *
+	 * @return the future result of the command
+	 * @throws RejectedExecutionException
+	 *             if the queue is full
+	 */
+	public <T> Future<T> submit(Command<T> command) {
+		return enqueue(command).future;
+	}
+
+	/**
+	 * Applies {@code command} on the simulation thread and waits for its result. If the
+	 * command has not started after {@code timeout}, it is withdrawn and never applied.
+	 * A command that has started is waited for until its batch is applied.
+	 *
+	 * @throws RejectedExecutionException
+	 *             if the queue is full
+	 * @throws TimeoutException
+	 *             if the command was withdrawn
+	 */
+	public <T> T call(Command<T> command, long timeout, TimeUnit unit) throws TimeoutException {
+		Task<T> t = enqueue(command);
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean interrupted = false;
+		try {
+			while (true) {
+				long wait = deadline - System.nanoTime();
+				if (wait <= 0 && t.started.compareAndSet(false, true)) {
+					t.future.cancel(false);
+					throw new TimeoutException("The command was not applied in time");
+				}
+				try {
+					return wait > 0 ? t.future.get(wait, TimeUnit.NANOSECONDS) : t.future.get();
+				} catch (TimeoutException e) {
+					// Withdrawn above unless it has started
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private <T> Task<T> enqueue(Command<T> command) {
+		Task<T> t = new Task<T>(command);
+		if (!queue.offer(t)) {
+			throw new RejectedExecutionException("Too many commands waiting");
+		}
+		return t;
+	}
+
+	private void loop() {
+		while (true) {
+			Task<?> first;
+			try {
+				if (rate > 0) {
+					long wait = wake - System.nanoTime();
+					first = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+				}
+				else {
+					first = queue.take();
+				}
+			} catch (InterruptedException e) {
+				// Shut down
+				return;
+			}
+			try {
+				if (first != null) {
+					applyBatch(first);
+				}
+				if (rate > 0 && System.nanoTime() - wake >= 0) {
+					step();
+				}
+			} catch (Throwable e) {
+				// Publishing failed; the thread goes on with the next batch
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Applies {@code first} and the commands queued after it as one batch
+	 */
+	private void applyBatch(Task<?> first) {
+		Batch batch = new Batch();
+		List<Task<?>> tasks = new ArrayList<Task<?>>();
+		Task<?> t = first;
+		try {
+			do {
+				// Commands withdrawn by their callers are skipped
+				if (t.started.compareAndSet(false, true)) {
+					tasks.add(t);
+					t.apply(batch);
+				}
+			} while (tasks.size() < MAX_BATCH && (t = queue.poll()) != null);
+			if (batch.changed) {
+				world.incVersion();
+			}
+			world.publish();
+		} finally {
+			for (Task<?> done : tasks) {
+				done.complete();
+			}
+		}
+	}
+
+	/**
+	 * Takes the steps that have come due
+	 */
+	private void step() {
+		long now = System.nanoTime();
+		if (now - due > MAX_LAG_NANOS) {
+			due = now - MAX_LAG_NANOS;
+		}
+		long end = now + TICK_NANOS;
+		while (now - due >= 0) {
+			try {
+				world.advanceTime(1);
+			} catch (Throwable e) {
+				e.printStackTrace();
+				setRate(0);
+				return;
+			}
+			due += period;
+			measuredSteps++;
+			now = System.nanoTime();
+			if (now - end >= 0 || !queue.isEmpty()) {
+				break;
+			}
+		}
+		boolean behind = now - due >= 0;
+		if (behind) {
+			// The steps that did not fit in the tick are dropped
+			due = now;
+		}
+		if (now - measuredFrom >= MEASURE_NANOS) {
+			world.setRate((float) (measuredSteps * 1e9 / (now - measuredFrom)));
+			measuredFrom = now;
+			measuredSteps = 0;
+		}
+		// A world that is behind takes its next step as soon as waiting commands are applied
+		wake = behind ? now : now + Math.max(due - now, Math.min(period, TICK_NANOS));
+	}
+
+	private void setRate(double stepsPerSecond) {
+		rate = stepsPerSecond;
+		world.setRate((float) stepsPerSecond);
+		if (stepsPerSecond > 0) {
+			period = Math.max(1, (long) (1e9 / stepsPerSecond));
+			// Steps are due every period from now, the first one right away
+			due = System.nanoTime();
+			wake = due;
+			measuredFrom = due;
+			measuredSteps = 0;
+		}
+	}
+
+	/**
+	 * The commands being applied together, and what they did to the world
+	 */
+	public final class Batch {
+		/**
+		 * Whether the world changed since it last went to a new version
+		 */
+		private boolean changed;
+
+		private Batch() {
+		}
+
+		/**
+		 * Returns the world to change
+		 */
+		public World world() {
+			return world;
+		}
+
+		/**
+		 * Notes that the world changed, so that it goes to a new version after the batch
+		 */
+		public void changed() {
+			changed = true;
+		}
+
+		/**
+		 * Advances the world by {@code n} steps. Changes made earlier in the batch
+		 * become part of the first of them.
+		 */
+		public void advanceTime(int n) {
+			world.advanceTime(n);
+			if (n > 0) {
+				changed = false;
+			}
+		}
+
+		/**
+		 * Replaces the world by {@code w}, which goes on from the version after the
+		 * current one. The new world is not running. It is published before it
+		 * replaces the current one, so that readers never see it without a snapshot.
+		 */
+		public void replaceWorld(World w) {
+			if (changed) {
+				world.incVersion();
+				changed = false;
+			}
+			setRate(0);
+			w.setVersion(world.getVersion() + 1);
+			w.setWorldChanges(world);
+			w.publish();
+			world = w;
+		}
+
+		/**
+		 * Runs the world at {@code stepsPerSecond} after the batch, or stops it if
+		 * that is 0
+		 *
+		 * @throws IllegalArgumentException
+		 *             if {@code stepsPerSecond} is negative or above {@link #MAX_RATE}
+		 */
+		public void run(double stepsPerSecond) {
+			if (!(stepsPerSecond >= 0 && stepsPerSecond <= MAX_RATE)) {
+				throw new IllegalArgumentException("rate must be between 0 and " + MAX_RATE);
+			}
+			setRate(stepsPerSecond);
+		}
+
+		/**
+		 * Returns true while the world is running
+		 */
+		public boolean isRunning() {
+			return rate > 0;
+		}
+	}
+
+	/**
+	 * A queued command and the future of its result
+	 */
+	private static class Task<T> {
+		final Command<T> command;
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		/**
+		 * Set once the command is applied, or withdrawn by its caller
+		 */
+		final AtomicBoolean started = new AtomicBoolean();
+		private T result;
+		private Throwable failure;
+
+		Task(Command<T> command) {
+			this.command = command;
+		}
+
+		void apply(Batch batch) {
+			try {
+				result = command.apply(batch);
+			} catch (Throwable e) {
+				failure = e;
+			}
+		}
+
+		void complete() {
+			if (failure != null) {
+				future.completeExceptionally(failure);
+			}
+			else {
+				future.complete(result);
+			}
+		}
+	}
+}
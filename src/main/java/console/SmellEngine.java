@@ -0,0 +1,183 @@
+package console;
+
+import java.util.Arrays;
+
+/**
+ * Searches for the closest food around a critter. A step costs one move plus the number
+ * of turns needed to face the direction of the step, so the search runs over
+ * (hex, facing) states with small integer costs. Since no path longer than
+ * {@code MAX_SMELL_DISTANCE + 1} matters, only hexes in a window of that radius around
+ * the critter are ever touched.
+ * <p>
+ * Costs are kept in a bucket queue indexed by cost, and the scratch arrays are stamped
+ * with the number of the search that last wrote them, so nothing has to be cleared
+ * between searches. Every thread uses its own engine, so critters may smell concurrently.
+ */
+class SmellEngine {
+	/**
+	 * The value reported when no food is within smelling distance
+	 */
+	static final int NO_FOOD = 1000000;
+	/**
+	 * The engine of each thread
+	 */
+	private static final ThreadLocal<SmellEngine> ENGINES = new ThreadLocal<SmellEngine>() {
+		@Override
+		protected SmellEngine initialValue() {
+			return new SmellEngine();
+		}
+	};
+	/**
+	 * Radius of the search window, in hexes
+	 */
+	private int radius;
+	/**
+	 * Width of the search window
+	 */
+	private int side;
+	/**
+	 * Change in window cell when stepping one tile in each of the six directions
+	 */
+	private final int[] step = new int[6];
+	/**
+	 * Number of the current search
+	 */
+	private int epoch;
+	/**
+	 * Search that last wrote the cost of each state, states are {@code cell * 6 + facing}
+	 */
+	private int[] stamp;
+	/**
+	 * Best known cost of each state
+	 */
+	private int[] cost;
+	/**
+	 * Absolute direction of the first step on the best known path to each state
+	 */
+	private byte[] first;
+	/**
+	 * Grid slot of each window cell, valid wherever one of its states is stamped
+	 */
+	private int[] slot;
+	/**
+	 * States waiting to be expanded, by cost
+	 */
+	private int[][] buckets;
+	/**
+	 * Number of states in each bucket
+	 */
+	private int[] counts;
+
+	/**
+	 * Returns the engine of the calling thread
+	 */
+	static SmellEngine get() {
+		return ENGINES.get();
+	}
+
+	/**
+	 * Sizes the scratch state for a search of at most {@code maxCost}
+	 */
+	private void resize(int maxCost) {
+		radius = maxCost;
+		side = 2 * radius + 1;
+		for (int d = 0; d < 6; d++) {
+			step[d] = HexGrid.DCOL[d] * side + HexGrid.DROW[d];
+		}
+		int cells = side * side;
+		stamp = new int[cells * 6];
+		cost = new int[cells * 6];
+		first = new byte[cells * 6];
+		slot = new int[cells];
+		buckets = new int[maxCost + 1][];
+		for (int c = 0; c <= maxCost; c++) {
+			buckets[c] = new int[16];
+		}
+		counts = new int[maxCost + 1];
+		epoch = 0;
+	}
+
+	/**
+	 * Returns information about the closest food reachable from {@code root} by a critter
+	 * facing {@code direction}: (distance - 1) * 1000 plus the direction of the first step
+	 * towards it, or {@link #NO_FOOD} if there is none within smelling distance.
+	 * Rocks and critters block the way.
+	 */
+	int smell(HexGrid grid, Hex root, int direction) {
+		int maxCost = Constants.MAX_SMELL_DISTANCE() + 1;
+		if (maxCost < 1) {
+			return NO_FOOD;
+		}
+		if (stamp == null || radius != maxCost) {
+			resize(maxCost);
+		}
+		if (++epoch == 0) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+		for (int c = 0; c <= maxCost; c++) {
+			counts[c] = 0;
+		}
+		int center = radius * side + radius;
+		slot[center] = root.getIndex();
+		int start = center * 6 + direction;
+		stamp[start] = epoch;
+		cost[start] = 0;
+		push(0, start);
+		for (int c = 0; c <= maxCost; c++) {
+			for (int k = 0; k < counts[c]; k++) {
+				int state = buckets[c][k];
+				if (cost[state] != c) {
+					continue;
+				}
+				int cell = state / 6;
+				int facing = state - cell * 6;
+				Hex hex = grid.get(slot[cell]);
+				if (c > 0 && hex.hasFood()) {
+					return (c - 1) * 1000 + first[state];
+				}
+				for (int d = 0; d < 6; d++) {
+					int turn = Math.abs(d - facing);
+					if (turn > 3) {
+						turn = 6 - turn;
+					}
+					int next = c + 1 + turn;
+					if (next > maxCost) {
+						continue;
+					}
+					int neighbor = grid.neighbor(slot[cell], d);
+					if (neighbor < 0) {
+						continue;
+					}
+					Hex h = grid.get(neighbor);
+					if (h.hasRock() || h.hasCritter()) {
+						continue;
+					}
+					int ncell = cell + step[d];
+					int nstate = ncell * 6 + d;
+					if (stamp[nstate] == epoch && cost[nstate] <= next) {
+						continue;
+					}
+					stamp[nstate] = epoch;
+					cost[nstate] = next;
+					first[nstate] = c == 0 ? (byte) d : first[state];
+					slot[ncell] = neighbor;
+					push(next, nstate);
+				}
+			}
+		}
+		return NO_FOOD;
+	}
+
+	/**
+	 * Adds {@code state} to the bucket for cost {@code c}
+	 */
+	private void push(int c, int state) {
+		int[] bucket = buckets[c];
+		if (counts[c] == bucket.length) {
+			bucket = Arrays.copyOf(bucket, bucket.length * 2);
+			buckets[c] = bucket;
+		}
+		bucket[counts[c]++] = state;
+	}
+}
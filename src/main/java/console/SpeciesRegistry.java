@@ -0,0 +1,127 @@
+package console;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Program;
+import parse.ParserFactory;
+import parse.ProgramCache;
+
+/**
+ * The species uploaded to a server, each a parsed program with the species name and
+ * memory its critters start with. A species is registered once and then referred to by
+ * its id when placing critters, so its program is neither sent nor parsed again.
+ * Registering the same species again returns the id it already has.
+ */
+public class SpeciesRegistry {
+	/**
+	 * Registered species, the species with id {@code i} at index {@code i - 1}
+	 */
+	private final List<Species> species = new ArrayList<Species>();
+	/**
+	 * Ids of registered species by {@link #key}
+	 */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	/**
+	 * Parses {@code program} and registers it as a species
+	 *
+	 * @param name the species name of its critters
+	 * @param program the text of the program, which may be enclosed in brackets
+	 * @param mem the memory its critters start with
+	 * @return the registered species, or null if the program does not parse, is beyond
+	 *         the limits of {@link ParserFactory#getBoundedParser()}, or the memory is
+	 *         smaller than {@link Constants#MIN_MEMORY()}
+	 */
+	public Species register(String name, String program, int[] mem) {
+		if (mem.length < Constants.MIN_MEMORY()) {
+			return null;
+		}
+		Program p = ParserFactory.getBoundedParser().parse(unbracket(program));
+		if (p == null) {
+			return null;
+		}
+		String key = key(name, p, mem);
+		synchronized (this) {
+			Integer id = ids.get(key);
+			if (id != null) {
+				return species.get(id - 1);
+			}
+			Species s = new Species(species.size() + 1, name, p, mem.clone());
+			species.add(s);
+			ids.put(key, s.id);
+			return s;
+		}
+	}
+
+	/**
+	 * Parses {@code program} through {@code programs} into a species that is not
+	 * registered, for critters sent along with their program. Its id is 0.
+	 *
+	 * @return the species, or null if {@link #register} would not register it
+	 */
+	public static Species unregistered(String name, String program, int[] mem, ProgramCache programs) {
+		if (mem.length < Constants.MIN_MEMORY()) {
+			return null;
+		}
+		Program p = programs.parse(unbracket(program));
+		return p == null ? null : new Species(0, name, p, mem.clone());
+	}
+
+	/**
+	 * Returns the species with id {@code id}, or null if there is none
+	 */
+	public synchronized Species get(int id) {
+		return id < 1 || id > species.size() ? null : species.get(id - 1);
+	}
+
+	/**
+	 * Returns the number of registered species
+	 */
+	public synchronized int size() {
+		return species.size();
+	}
+
+	/**
+	 * Returns {@code program} without the brackets it may be enclosed in
+	 */
+	private static String unbracket(String program) {
+		if (program.startsWith("[") && program.endsWith("]")) {
+			return program.substring(1, program.length() - 1);
+		}
+		return program;
+	}
+
+	private static String key(String name, Program p, int[] mem) {
+		return p.hash() + ' ' + Arrays.toString(mem) + ' ' + name;
+	}
+
+	/**
+	 * A registered species. Its program is shared by every critter placed from it and
+	 * must not be modified.
+	 */
+	public static class Species {
+		private final int id;
+		private final String name;
+		private final Program program;
+		private final int[] mem;
+
+		private Species(int id, String name, Program program, int[] mem) {
+			this.id = id;
+			this.name = name;
+			this.program = program;
+			this.mem = mem;
+		}
+
+		public int id() {return id;}
+		public String name() {return name;}
+		public Program program() {return program;}
+		/**
+		 * Returns a copy of the memory critters of this species start with
+		 */
+		public int[] mem() {return mem.clone();}
+	}
+}
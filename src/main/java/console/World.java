@@ -1,25 +1,23 @@
 package console;
 
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Hashtable;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.Scanner;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import console.DummyClassLibrary.*;
 import ast.Program;
 import exceptions.SyntaxError;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.util.Duration;
-import parse.Parser;
-import parse.ParserFactory;
+import parse.ProgramCache;
 
 /**
  * The class that holds the hex tiles and references to the critters in the world
@@ -29,10 +27,14 @@ public class World {
 	 * Scanner for world.txt
 	 */
 	private Scanner scan;
-    /*
-     * HashTable of all the Hex's on the grid
+    /**
+     * All the Hex's on the grid, addressed by slot
+     */
+    private HexGrid grid;
+    /**
+     * Distance to the closest food from every hex, null until a critter first smells
      */
-    private Hashtable<String, Hex> grid;
+    private FoodField foodField;
     /**
      * List of critters in the world
      */
@@ -79,13 +81,63 @@ public class World {
      */
     private String path;
     /**
-     * 
+     * The number of steps per second the world is running at, 0 while it is not running
      */
-    private Timeline timer;
+    private volatile float rate;
+    /**
+     * The latest published state of the world, null until it is first published
+     */
+    private volatile WorldSnapshot snapshot;
+    /**
+     * The columns with a hex tile that changed since the last snapshot, by column
+     */
+    private boolean[] dirtyColumns;
     /**
      * 
      */
     private static int crittersPlaced;
+    /**
+     * Seed that every random stream of this world is derived from
+     */
+    private long seed;
+    /**
+     * Random stream used to place critters and choose their directions
+     */
+    private SplittableRandom placementRandom;
+    /**
+     * Random stream that the stream of every new critter is split from
+     */
+    private SplittableRandom critterRandom;
+    /**
+     * Number of threads that plan the turns of critters in parallel,
+     * 0 if critters take their turns one after another
+     */
+    private int parallelism;
+    /**
+     * The threads that plan the turns of critters, null when stepping one critter at a time
+     */
+    private ForkJoinPool stepPool;
+    /**
+     * True while the critters are planning their turns in parallel
+     */
+    private volatile boolean planning;
+    /**
+     * The food distance field built before critters started planning in parallel, which
+     * they smell without locking; null while they are not planning
+     */
+    private FoodField plannedFoodField;
+    /**
+     * The programs of the critters in this world, one instance per genome
+     */
+    private final GenomeTable genomes = new GenomeTable();
+    /**
+     * The programs parsed for critters placed in this world, by their text
+     */
+    private final ProgramCache programs = new ProgramCache(PROGRAM_CACHE_SIZE);
+    /**
+     * The number of distinct programs remembered by {@code programs}
+     */
+    private static final int PROGRAM_CACHE_SIZE = 64;
     
     /**
      * Constructor.
@@ -93,7 +145,7 @@ public class World {
      */
     public World(int numSteps, int versionNumber, int row, int col, 
     		String name) {
-    		grid = new Hashtable<String, Hex>();
+    		setSeed(System.nanoTime());
     		critterList = new ArrayList<Critter>(); 
     		foodList = new ArrayList<Hex>();
     		rockList = new ArrayList<Hex>();
@@ -111,8 +163,8 @@ public class World {
      * Default constructor with rows and columns as defaults given by the Constants class
      */
     public World() {
+    	setSeed(System.nanoTime());
     	this.scan = null;
-    	grid = new Hashtable<String, Hex>();
     	critterList = new ArrayList<Critter>();
     	deadCritterList = new ArrayList<DeadCritter>();
     	rockList = new ArrayList<Hex>();
@@ -131,6 +183,7 @@ public class World {
      * Constructor when given the PATH of a world initialization file.
      */
     public World(String filePath) {
+    	setSeed(System.nanoTime());
     	//Remove quotes or dangling slashes from filename so that it can be read by FileInputStream
     	if (filePath.startsWith("\"") && filePath.endsWith("\""))
     		filePath = filePath.substring(1, filePath.length()-1);
@@ -153,7 +206,6 @@ public class World {
     	//Initialize the World and its variables
     	path = filePath.substring(0, i+1);
     	this.scan = new Scanner(in);
-    	grid = new Hashtable<String, Hex>();
     	deadCritterList = new ArrayList<DeadCritter>();
     	critterList = new ArrayList<Critter>();
     	rockList = new ArrayList<Hex>();
@@ -165,13 +217,13 @@ public class World {
     
     public World(Description description) {
     	//Initialize the World and its variables
+    	setSeed(description.seed() != null ? description.seed() : System.nanoTime());
     	path = null;
     	String des = description.description();
 		if (des.startsWith("[") && des.endsWith("]")) {
 			des = des.substring(1, des.length()-1);
 		}
     	this.scan = new Scanner(des);
-    	grid = new Hashtable<String, Hex>();
     	deadCritterList = new ArrayList<DeadCritter>();
     	critterList = new ArrayList<Critter>();
     	rockList = new ArrayList<Hex>();
@@ -201,6 +253,9 @@ public class World {
         	case "food":
         		addFood();
         		break;
+        	case "seed":
+        		setSeed(scan.nextLong());
+        		break;
         	case "critter":
         		if (path != null) {
         			System.out.println(path);
@@ -253,16 +308,10 @@ public class World {
     }
     
     /**
-     * Create the grid with the hex tile objects placed in the hash table
+     * Create the grid with the hex tile objects placed in their slots
      */
     private void createGrid() {
-    	for (int i = 0; i < columns; i++) {
-    		int strtrow = (i + 1) / 2; 
-    		for (int j = strtrow; j < (height + strtrow); j++) {
-    			String key = getKey(i, j);
-    			grid.put(key, new Hex(i, j, this));
-    		}
-    	}
+    	grid = new HexGrid(columns, height, this);
     }
     
     /*
@@ -290,8 +339,7 @@ public class World {
     private void addRock() {
     	int col = scan.nextInt();
     	int row = scan.nextInt();
-    	String key = getKey(col, row);
-    	Hex h = grid.get(key);
+    	Hex h = grid.get(col, row);
     	rockList.add(h);
     	h.setRock();
     	h.update();
@@ -304,8 +352,7 @@ public class World {
     	int col = scan.nextInt();
     	int row = scan.nextInt();
     	int amt = scan.nextInt();
-    	String key = getKey(col, row);
-    	Hex h = grid.get(key);
+    	Hex h = grid.get(col, row);
     	foodList.add(h);
     	h.setFood(amt);
     	h.update();
@@ -334,9 +381,9 @@ public class World {
     		System.out.println("An invalid column or row was passed into critter placement. "
     				+ "The critter will now be randomly placed.");
     		do {
-	    		col = new Random().nextInt(columns);
+	    		col = placementRandom.nextInt(columns);
 	    		int strtrow = (col + 1) / 2;
-	        	row = new Random().nextInt(height) + strtrow;
+	        	row = placementRandom.nextInt(height) + strtrow;
     		} while (!getHex(col, row).isEmpty());
     	}
     	if (dir < 0 || dir >= 6) {
@@ -474,6 +521,15 @@ public class World {
     	}
     	
     	
+    	//Read the critter file once for all the critters
+    	String file;
+    	try {
+    		file = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+    	} catch (IOException e) {
+    		System.out.println("Cannot find critter file specified.");
+    		return;
+    	}
+    	
     	for (int i = 0; i < n; i++) {
     		if (copy.isEmpty()) {
     			System.out.println("There is no remaining space on the board to place any more critters.");
@@ -481,20 +537,13 @@ public class World {
     		}
     		
     		//Find an empty Hex tile
-    		int hex = new Random().nextInt(copy.size());
-    		int dir = new Random().nextInt(6);
+    		int hex = placementRandom.nextInt(copy.size());
+    		int dir = placementRandom.nextInt(6);
     		Hex h = copy.get(hex);
     		copy.remove(hex);
     		
     		//Scan the critter program
-    		Scanner critScan;
-			try {
-				critScan = new Scanner(new FileInputStream(path));
-			} catch (FileNotFoundException e) {
-				System.out.println("Cannot find critter file specified.");
-	    		return;
-			}
-			
+    		Scanner critScan = new Scanner(file);
 			critterHelper(critScan, h.getRow(), h.getColumn(), dir);
     	}
     }
@@ -507,15 +556,7 @@ public class World {
      */
     public Critter[] loadCritters(AddCritter add, int num) {
     	Critter[] critList = new Critter[num];
-    	ArrayList<Hex> copy = new ArrayList<Hex>();
-    	for (int col = 0; col < columns; col++) {
-    		int strtrow = (col + 1) /2;
-    		for (int row = strtrow; row < (height + strtrow); row++) {
-    			Hex h = getHex(col, row);
-    			if (h.isEmpty())
-    				copy.add(h);
-    		}
-    	}
+    	ArrayList<Hex> copy = emptyHexes();
     	
     	for (int i = 0; i < num; i++) {
     		if (copy.isEmpty()) {
@@ -523,8 +564,8 @@ public class World {
 	    	}
 	    	
 			//Find an empty Hex tile
-			int hex = new Random().nextInt(copy.size());
-			int dir = new Random().nextInt(6);
+			int hex = placementRandom.nextInt(copy.size());
+			int dir = placementRandom.nextInt(6);
 			Hex h = copy.get(hex);
 			copy.remove(hex);
 			
@@ -543,6 +584,43 @@ public class World {
     	return critList;
     }
     
+    /**
+     * Add {@code num} number of critters of the registered species {@code s} to the world,
+     * randomly placed like {@link #loadCritters(AddCritter, int)} does. The program of the
+     * species is not parsed again.
+     */
+    public Critter[] loadCritters(SpeciesRegistry.Species s, int num) {
+    	Critter[] critList = new Critter[num];
+    	ArrayList<Hex> copy = emptyHexes();
+    	
+    	for (int i = 0; i < num && !copy.isEmpty(); i++) {
+			int hex = placementRandom.nextInt(copy.size());
+			int dir = placementRandom.nextInt(6);
+			Hex h = copy.remove(hex);
+			
+			critList[i] = newCritter(s.program(), h.getRow(), h.getColumn(), dir, s.name(), s.mem());
+			critList[i].setId(crittersPlaced);
+			incCrittersPlaced();
+    	}
+    	return critList;
+    }
+    
+    /**
+     * Returns the empty hex tiles of the world
+     */
+    private ArrayList<Hex> emptyHexes() {
+    	ArrayList<Hex> copy = new ArrayList<Hex>();
+    	for (int col = 0; col < columns; col++) {
+    		int strtrow = (col + 1) /2;
+    		for (int row = strtrow; row < (height + strtrow); row++) {
+    			Hex h = getHex(col, row);
+    			if (h.isEmpty())
+    				copy.add(h);
+    		}
+    	}
+    	return copy;
+    }
+    
     /**
      * Place a critter on hex tile and (col, row) used when the user 
      * wants to place critters in exact grid locations
@@ -559,7 +637,7 @@ public class World {
 			System.out.println("Cannot find critter file specified.");
     		return;
 		}
-		int dir = new Random().nextInt(6);
+		int dir = placementRandom.nextInt(6);
 		
 		critterHelper(critScan, row, col, dir);
     }
@@ -574,7 +652,7 @@ public class World {
     	if (program.startsWith("[") && program.endsWith("]"))
     		program = program.substring(1, program.length()-1);
     	Scanner critScan = new Scanner(program);
-    	int dir = new Random().nextInt(6);
+    	int dir = placementRandom.nextInt(6);
     	
     	Hex hex = getHex(p.col(), p.row());
     	if (hex == null || !hex.isEmpty()) {
@@ -585,6 +663,20 @@ public class World {
     	return critterHelper(critScan, p.row(), p.col(), dir, add.species_id(), add.mem());
 	}
     
+    /**
+     * Place a critter of the registered species {@code s} at the position p, without
+     * parsing its program again
+     * @return the critter, or null if the hex at p is missing or not empty
+     */
+    public Critter placeCritter(SpeciesRegistry.Species s, Position p) {
+    	int dir = placementRandom.nextInt(6);
+    	Hex hex = getHex(p.col(), p.row());
+    	if (hex == null || !hex.isEmpty()) {
+    		return null;
+    	}
+    	return newCritter(s.program(), p.row(), p.col(), dir, s.name(), s.mem());
+	}
+    
     
     /**
      * A helper method for the place and add critter methods
@@ -607,23 +699,26 @@ public class World {
      * A helper method for the place and add critter methods
      */
     private Critter critterHelper(Scanner critScan, int row, int col, int dir, String name, int[] mem) {
-    	//Parse critter program
-    	Parser p = ParserFactory.getParser();
+    	//Parse critter program, or reuse it if the same program was parsed before
     	StringBuilder sb = new StringBuilder();
     	while (critScan.hasNextLine()) {
     		sb.append(critScan.nextLine() + "\n");
     	}
-    	BufferedReader reader = new BufferedReader(new StringReader(sb.toString()));
-    	Program prgm = p.parse(reader);
+    	critScan.close();
+    	Program prgm = programs.parse(sb.toString());
     	if (prgm == null) 
     		return null;
-    	//Critter creation and hex tile reference setting
-    	Critter critter = new Critter(prgm, mem, name, dir, col, row, this, null);
+    	return newCritter(prgm, row, col, dir, name, mem);
+    }
+    /**
+     * Creates a critter running {@code prgm} and places it on the hex tile at (col, row)
+     */
+    private Critter newCritter(Program prgm, int row, int col, int dir, String name, int[] mem) {
+    	Critter critter = new Critter(prgm, mem.clone(), name, dir, col, row, this, null);
     	critterList.add(critter);
     	Hex h = getHex(col, row);
     	h.setCritter(critter);
     	h.update();
-    	critScan.close();
     	System.out.printf("A critter was placed at (%d, %d).%n", col, row);
     	return critter;
     }
@@ -638,13 +733,10 @@ public class World {
     	for (int i = 0; i < n; i++) {
 	    	numSteps += 1;
 	    	versionNumber += 1;
-	    	for (int j = 0; j < critterList.size(); j++) {
-	    		Critter critter = critterList.get(j);
-	    		if (critter != null) {
-	    			critter.nextTurn();
-	    			getHex(critter.getCol(), critter.getRow()).update();
-	    		}
-	    	}
+	    	if (parallelism > 0)
+	    		stepInParallel();
+	    	else
+	    		stepInOrder();
 	    	System.out.println("The world has entered version " + versionNumber);
 	    	for (int j = 0; j < critterList.size(); j++) {
 	    		if (critterList.get(j) == null) {
@@ -658,31 +750,147 @@ public class World {
 	    			j--;
 	    		}
 	    	}
+	    	if (snapshot != null)
+	    		publish();
     	}
     }
+    
     /**
-     * Run the simulation at {@code simSpeed} times per second
+     * Publishes the current state of the world as the snapshot returned by
+     * {@link #getSnapshot()}. Once a snapshot is published, every step publishes
+     * another one. Must be called by the thread changing the world, or under its
+     * write lock.
      */
-    public void run(float simSpeed) {
-    	if (simSpeed > 0) {
-	    	simSpeed = 1000 / simSpeed;
-			if (timer == null) {
-				timer = new Timeline(new KeyFrame(Duration.millis(simSpeed), 
-					ae -> advanceTime(1)));
-			}
-			else {
-				timer.stop();
-				timer = new Timeline(new KeyFrame(Duration.millis(simSpeed), 
-						ae -> advanceTime(1)));
-			}
-			timer.setCycleCount(Animation.INDEFINITE);
-			timer.play();
+    public void publish() {
+    	int cols = Math.max(columns, 0);
+    	boolean[] dirty = dirtyColumns;
+    	if (dirty == null || dirty.length != cols) {
+    		dirty = new boolean[cols];
+    		snapshot = new WorldSnapshot(this, null, dirty);
+    	}
+    	else {
+    		snapshot = new WorldSnapshot(this, snapshot, dirty);
+    		Arrays.fill(dirty, false);
+    	}
+    	dirtyColumns = dirty;
+    }
+    
+    /**
+     * Returns the latest published state of the world, which can be read without
+     * locking, or null if it has never been published
+     */
+    public WorldSnapshot getSnapshot() {
+    	return snapshot;
+    }
+    
+    /**
+     * Notes that {@code h} changed, so that its column is copied into the next snapshot
+     */
+    void hexUpdated(Hex h) {
+    	boolean[] dirty = dirtyColumns;
+    	if (dirty != null && h.getColumn() < dirty.length)
+    		dirty[h.getColumn()] = true;
+    }
+    
+    /**
+     * Lets every critter take its turn, one after another, each seeing the world as
+     * left by the critters before it
+     */
+    private void stepInOrder() {
+    	for (int j = 0; j < critterList.size(); j++) {
+    		Critter critter = critterList.get(j);
+    		if (critter != null) {
+    			critter.nextTurn();
+    			getHex(critter.getCol(), critter.getRow()).update();
+    		}
+    	}
+    }
+    
+    /**
+     * Takes a step in two phases. First every critter plans its turn in parallel against
+     * the world as it was at the start of the step. Then the planned actions are carried
+     * out one after another in critter list order, so conflicts such as two critters
+     * moving onto the same hex go to the critter that comes first. Critters killed during
+     * the second phase do not act, and critters born during it act from the next step on.
+     * The outcome does not depend on the number of threads.
+     */
+    private void stepInParallel() {
+    	Critter[] turn = critterList.toArray(new Critter[critterList.size()]);
+    	plannedFoodField = getFoodField();
+    	for (Critter critter : turn) {
+    		if (critter != null)
+    			critter.snapshotAppearance();
     	}
-    	else { //The simulation speed is 0
-    		if (timer != null)
-    			timer.stop();
+    	planning = true;
+    	try {
+    		stepPool.submit(() -> Arrays.stream(turn).parallel().forEach(critter -> {
+    			if (critter != null)
+    				critter.planTurn();
+    		})).get();
+    	} catch (InterruptedException | ExecutionException e) {
+    		throw new IllegalStateException("Critters could not plan their turns.", e);
+    	} finally {
+    		planning = false;
+    		plannedFoodField = null;
+    	}
+    	for (Critter critter : turn) {
+    		if (critter != null && !critter.isDead()) {
+    			critter.commitTurn();
+    			if (!critter.isDead())
+    				getHex(critter.getCol(), critter.getRow()).update();
+    		}
     	}
     }
+    
+    /**
+     * Chooses how this world steps. With {@code threads} greater than 0, critters plan their
+     * turns in parallel on that many threads and their actions are then carried out in
+     * order; with 0, critters take their turns one after another.
+     */
+    public void setParallelism(int threads) {
+    	if (threads < 0)
+    		throw new IllegalArgumentException("The number of threads cannot be negative.");
+    	if (stepPool != null)
+    		stepPool.shutdown();
+    	parallelism = threads;
+    	stepPool = threads > 0 ? new ForkJoinPool(threads) : null;
+    }
+    
+    /**
+     * Returns the number of threads that plan the turns of critters, 0 if critters take
+     * their turns one after another
+     */
+    public int getParallelism() {
+    	return parallelism;
+    }
+    
+    /**
+     * Returns true while the critters are planning their turns in parallel
+     */
+    boolean isPlanning() {
+    	return planning;
+    }
+    
+    /**
+     * Returns the table that the programs of this world's critters are interned in
+     */
+    public GenomeTable getGenomes() {
+    	return genomes;
+    }
+    
+    /**
+     * Returns the cache that the programs of critters placed in this world are parsed through
+     */
+    public ProgramCache getPrograms() {
+    	return programs;
+    }
+    /**
+     * Records the number of steps per second the world is running at, as measured by the
+     * {@link SimulationScheduler} running it
+     */
+    void setRate(float rate) {
+    	this.rate = rate;
+    }
     /**
      * Set up the changes between worlds to create a diff based on which hex's are changing.
      * Continues deadCritterList to the next world.
@@ -790,7 +998,75 @@ public class World {
      * @return the hex at col and row
      */
     public Hex getHex(int col, int row) {
-		return grid.get(getKey(col, row));
+		return grid.get(col, row);
+    }
+    /**
+     * Returns the grid holding the hex tiles of this world
+     */
+    HexGrid getGrid() {
+    	return grid;
+    }
+    /**
+     * Returns the food distance field of this world, building it if it does not
+     * exist yet or if the smelling distance has changed since it was built.
+     */
+    synchronized FoodField getFoodField() {
+    	int cap = Constants.MAX_SMELL_DISTANCE() + 1;
+    	if (foodField == null || foodField.cap() != cap)
+    		foodField = new FoodField(grid, cap);
+    	return foodField;
+    }
+    /**
+     * Returns the food distance field for a critter to smell: the one published before
+     * planning while critters plan in parallel, and otherwise {@link #getFoodField()}
+     */
+    FoodField smellField() {
+    	FoodField f = plannedFoodField;
+    	return f != null ? f : getFoodField();
+    }
+    /**
+     * Keeps the food distance field up to date after the food or rock on {@code h} changed
+     */
+    void terrainChanged(Hex h) {
+    	if (foodField != null)
+    		foodField.update(h);
+    }
+    /**
+     * Returns the hex next to {@code h} in {@code direction}, null if it is off the grid.
+     * @param direction - a direction in the range [0, 6)
+     */
+    public Hex getNeighbor(Hex h, int direction) {
+    	return grid.neighbor(h, direction);
+    }
+    /**
+     * Returns the hex {@code distance} tiles away from (col, row) in {@code direction}, 
+     * null if it is off the grid.
+     * @param direction - a direction in the range [0, 6)
+     */
+    public Hex getHexInDirection(int col, int row, int distance, int direction) {
+    	return grid.inDirection(col, row, distance, direction);
+    }
+    /**
+     * Reseeds this world. Every random choice made afterwards, by the world or by
+     * critters created afterwards, is determined by {@code seed}.
+     */
+    public void setSeed(long seed) {
+    	this.seed = seed;
+    	SplittableRandom root = new SplittableRandom(seed);
+    	placementRandom = root.split();
+    	critterRandom = root.split();
+    }
+    /**
+     * Returns the seed that the random streams of this world were derived from
+     */
+    public long getSeed() {
+    	return seed;
+    }
+    /**
+     * Returns a new random stream for a critter, split from the critter stream of this world
+     */
+    SplittableRandom newCritterRandom() {
+    	return critterRandom.split();
     }
     /**
      * Returns the name of the world as specified in world.txt,
@@ -837,19 +1113,11 @@ public class World {
     	return numSteps;
     }
     /**
-     * 
+     * Returns the number of steps per second the world has lately been running at,
+     * or 0 if it is not running
      */
     public float getRate() {
-    	if (timer == null || timer.getStatus() == Animation.Status.STOPPED)
-    		return 0;
-    	return (float) (1 / timer.getKeyFrames().get(0).getTime().toSeconds());
-    }
-    /**
-     * 
-     * @return The key required to get the hex tile at (col, row) from the hashtable
-     */
-    private String getKey(int col, int row) {
-		return "(" + col + ", " + row + ")";
+    	return rate;
     }
     /**
      * Increments the world's version number by one.
@@ -875,17 +1143,6 @@ public class World {
     public void addCritter(Critter critter) {
 		critterList.add(critter); 
     }
-    /**
-     * Changes all distances back to infinite
-     */
-    public void resetTiles() {
-    		Set<String> keys = grid.keySet();
-    		for (String key: keys) {
-    			grid.get(key).setDistance(Integer.MAX_VALUE);
-    			grid.get(key).setDirection(0);
-    			grid.get(key).setPrev(null);
-    		}
-    }
     
 
 /**
@@ -894,8 +1151,7 @@ public class World {
  * @param col - col to place rock
  */
     public void placeRock(int row, int col) {
-    		String key = getKey(col, row);
-    		Hex hex = grid.get(key);
+    		Hex hex = grid.get(col, row);
     		if (hex != null) {
     			if (hex.hexContains() < -1) {
     				hex.setFood(0);
@@ -924,8 +1180,7 @@ public class World {
      * @param critter to add
      */
     public void placeCritter(int row, int col, Critter critter) {
-    		String key = getKey(col, row);
-    		Hex hex = grid.get(key);
+    		Hex hex = grid.get(col, row);
     		if (hex != null) {
     			if (hex.hasCritter()) {
     				critterList.remove(hex.getCritter());
@@ -950,8 +1205,7 @@ public class World {
      * @param amount of food to add
      */
     public void placeFood(int row, int col, int amount) {
-    		String key = getKey(col, row);
-    		Hex hex = grid.get(key);
+    		Hex hex = grid.get(col, row);
     		if (hex != null) {
     			if (hex.hasCritter()) {
     				critterList.remove(hex.getCritter());
@@ -979,8 +1233,7 @@ public class World {
      * @param col of hex to make empty
      */
     public void placeEmpty(int row, int col) {
-    		String key = getKey(col, row);
-    		Hex hex = grid.get(key);
+    		Hex hex = grid.get(col, row);
     		if (hex != null) {
     			if  (hex.hasCritter()) {
     				critterList.remove(hex.getCritter());
@@ -0,0 +1,208 @@
+package console;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Program;
+import ast.Rule;
+import console.DummyClassLibrary.DeadCritter;
+
+/**
+ * An immutable copy of the state of a world at one version, published by the thread
+ * that changes the world so that readers can use it without locking. Hex tiles are
+ * copied column by column, and a column that has not changed since the previous
+ * snapshot is shared with it, so publishing costs the size of what changed plus one
+ * copy of every critter.
+ */
+public final class WorldSnapshot {
+	/**
+	 * {@link #contents} of a hex tile holding a rock
+	 */
+	public static final int ROCK = -1;
+	/**
+	 * {@link #contents} of a hex tile holding a critter
+	 */
+	public static final int CRITTER = -2;
+
+	private final int version;
+	private final int numSteps;
+	private final String name;
+	private final int rows, columns, height;
+	private final int crittersPlaced;
+	private final List<CritterView> critters;
+	private final Map<Integer, CritterView> byId;
+	private final Map<Integer, CritterView> bySlot;
+	private final List<DeadCritter> deadCritters;
+	private final Column[] hexColumns;
+
+	/**
+	 * Takes a snapshot of {@code w}, sharing the columns that are not {@code dirty} with
+	 * {@code previous}. Must be called by the thread changing the world, or under its
+	 * write lock.
+	 */
+	WorldSnapshot(World w, WorldSnapshot previous, boolean[] dirty) {
+		version = w.getVersion();
+		numSteps = w.getNumsteps();
+		name = w.getName();
+		rows = w.getRows();
+		columns = Math.max(w.getColumns(), 0);
+		height = Math.max(w.getHeight(), 0);
+		crittersPlaced = w.getCrittersPlaced();
+
+		List<CritterView> views = new ArrayList<CritterView>(w.getCritters().size());
+		byId = new HashMap<Integer, CritterView>();
+		bySlot = new HashMap<Integer, CritterView>();
+		for (Critter c : w.getCritters()) {
+			if (c != null) {
+				CritterView v = new CritterView(c);
+				views.add(v);
+				byId.put(v.id, v);
+				bySlot.put(slot(v.col, v.row), v);
+			}
+		}
+		critters = Collections.unmodifiableList(views);
+
+		List<DeadCritter> dead = w.getDeadCritters();
+		deadCritters = previous != null && previous.deadCritters.size() == dead.size()
+				? previous.deadCritters
+				: Collections.unmodifiableList(new ArrayList<DeadCritter>(dead));
+
+		boolean share = previous != null && previous.hexColumns.length == columns
+				&& previous.height == height;
+		hexColumns = new Column[columns];
+		for (int col = 0; col < columns; col++) {
+			hexColumns[col] = share && !dirty[col] ? previous.hexColumns[col] : new Column(w, col, height);
+		}
+	}
+
+	/**
+	 * Returns the version of the world this is a snapshot of
+	 */
+	public int version() {return version;}
+	public int numSteps() {return numSteps;}
+	public String name() {return name;}
+	public int rows() {return rows;}
+	public int columns() {return columns;}
+	public int height() {return height;}
+	public int crittersPlaced() {return crittersPlaced;}
+	/**
+	 * Returns the living critters, in the order the world keeps them
+	 */
+	public List<CritterView> critters() {return critters;}
+	public List<DeadCritter> deadCritters() {return deadCritters;}
+
+	/**
+	 * Returns the critter with id {@code id}, or null if no living critter has it
+	 */
+	public CritterView critter(int id) {
+		return byId.get(id);
+	}
+
+	/**
+	 * Returns whether the world has a hex tile at {@code col} and {@code row}
+	 */
+	public boolean hasHex(int col, int row) {
+		return slot(col, row) >= 0;
+	}
+
+	/**
+	 * Returns the version of the world in which the hex tile at {@code col} and
+	 * {@code row} last changed, like {@link Hex#getLastUpdated()}
+	 */
+	public int lastUpdated(int col, int row) {
+		return hexColumns[col].lastUpdated[row - (col + 1) / 2];
+	}
+
+	/**
+	 * Returns what the hex tile at {@code col} and {@code row} holds: {@link #ROCK},
+	 * the amount of food, {@link #CRITTER}, or 0 if it is empty. A rock is reported
+	 * before food, and food before a critter.
+	 */
+	public int contents(int col, int row) {
+		return hexColumns[col].contents[row - (col + 1) / 2];
+	}
+
+	/**
+	 * Returns the critter on the hex tile at {@code col} and {@code row}, or null
+	 */
+	public CritterView critterAt(int col, int row) {
+		return bySlot.get(slot(col, row));
+	}
+
+	private int slot(int col, int row) {
+		if (col < 0 || col >= columns)
+			return -1;
+		int offset = row - (col + 1) / 2;
+		if (offset < 0 || offset >= height)
+			return -1;
+		return col * height + offset;
+	}
+
+	/**
+	 * The hex tiles of one column
+	 */
+	private static class Column {
+		final int[] lastUpdated;
+		final int[] contents;
+
+		Column(World w, int col, int height) {
+			lastUpdated = new int[height];
+			contents = new int[height];
+			int strtrow = (col + 1) / 2;
+			for (int i = 0; i < height; i++) {
+				Hex h = w.getHex(col, strtrow + i);
+				lastUpdated[i] = h.getLastUpdated();
+				contents[i] = h.hasRock() ? ROCK : h.hasFood() ? h.getFood() : h.hasCritter() ? CRITTER : 0;
+			}
+		}
+	}
+
+	/**
+	 * The state of a critter when the snapshot was taken
+	 */
+	public static final class CritterView {
+		private final int id;
+		private final String species;
+		private final int row, col, direction;
+		private final int[] mem;
+		private final Program program;
+		private final Rule lastRule;
+		private final int sessionId;
+
+		private CritterView(Critter c) {
+			id = c.getId();
+			species = c.getSpecies();
+			row = c.getRow();
+			col = c.getCol();
+			direction = c.getDirection();
+			mem = c.getMem();
+			program = c.getProgram();
+			lastRule = c.getLastRule();
+			sessionId = c.getSessionId();
+		}
+
+		public int id() {return id;}
+		public String species() {return species;}
+		public int row() {return row;}
+		public int col() {return col;}
+		public int direction() {return direction;}
+		/**
+		 * Returns a copy of the memory of the critter
+		 */
+		public int[] mem() {return mem.clone();}
+		public int memSize() {return mem.length;}
+		/**
+		 * Returns the value at index {@code i} of the memory of the critter
+		 */
+		public int mem(int i) {return mem[i];}
+		/**
+		 * Returns the program of the critter, which is shared and must not be modified
+		 */
+		public Program program() {return program;}
+		public Rule lastRule() {return lastRule;}
+		public int sessionId() {return sessionId;}
+	}
+}
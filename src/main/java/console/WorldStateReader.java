@@ -0,0 +1,247 @@
+package console;
+
+import static console.WorldStateWriter.CRITTER;
+import static console.WorldStateWriter.END;
+import static console.WorldStateWriter.FOOD;
+import static console.WorldStateWriter.NOTHING;
+import static console.WorldStateWriter.OWNED;
+import static console.WorldStateWriter.PROGRAM;
+import static console.WorldStateWriter.ROCK;
+import static console.WorldStateWriter.SPECIES;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import console.DummyClassLibrary.GeneralInfo;
+import console.DummyClassLibrary.Type;
+import console.DummyClassLibrary.WorldInfoForGet;
+
+/**
+ * Reads the binary form of a get("/world") response written by
+ * {@link WorldStateWriter#writeBinary}, into the same {@link WorldInfoForGet} that Gson
+ * reads from the JSON form.
+ */
+public final class WorldStateReader {
+	private final DataInputStream in;
+	/**
+	 * Program hashes and species in the order they were first sent
+	 */
+	private final List<String> hashes = new ArrayList<String>();
+	private final List<String> species = new ArrayList<String>();
+	/**
+	 * The text of each program sent, by its hash
+	 */
+	private final Map<String, String> programs = new HashMap<String, String>();
+
+	private WorldStateReader(InputStream in) {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+	}
+
+	/**
+	 * Reads a world from {@code in}
+	 *
+	 * @throws IOException
+	 *             if {@code in} cannot be read or does not hold a world in a known version
+	 *             of the binary form
+	 */
+	public static WorldInfoForGet read(InputStream in) throws IOException {
+		return new WorldStateReader(in).read();
+	}
+
+	private WorldInfoForGet read() throws IOException {
+		for (byte b : WorldStateWriter.MAGIC) {
+			if (in.readByte() != b) {
+				throw new IOException("Not a world state");
+			}
+		}
+		int version = varint();
+		if (version != WorldStateWriter.VERSION) {
+			throw new IOException("Unknown world state version " + version);
+		}
+		int time = sint();
+		int worldVersion = sint();
+		int updateSince = sint();
+		float rate = in.readFloat();
+		int nameLength = varint();
+		String name = nameLength == 0 ? null : string(nameLength - 1);
+		int population = varint();
+		int rows = varint();
+		int columns = varint();
+		int fromCol = sint();
+		int toCol = sint();
+		int toRow = sint();
+		int height = varint();
+		if (fromCol < 0 || fromCol > toCol || toCol > columns || height < 0) {
+			throw malformed();
+		}
+
+		int dead = varint();
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		int id = 0;
+		for (int i = 0; i < dead; i++) {
+			id += sint();
+			ids.add(id);
+		}
+
+		ArrayList<GeneralInfo> state = new ArrayList<GeneralInfo>();
+		Scan scan = new Scan(fromCol, toCol, toRow, height);
+		while (true) {
+			int b = in.readUnsignedByte();
+			int kind = b & 0x07;
+			int flags = b >>> 3;
+			if (kind == END) {
+				break;
+			}
+			scan.skip(varint());
+			switch (kind) {
+			case ROCK:
+				state.add(new GeneralInfo(Type.rock, scan.row(), scan.col(), 0));
+				break;
+			case FOOD:
+				state.add(new GeneralInfo(Type.food, scan.row(), scan.col(), varint()));
+				break;
+			case NOTHING: {
+				int run = varint();
+				for (int i = 0; i < run; i++) {
+					if (i > 0) {
+						scan.skip(0);
+					}
+					state.add(new GeneralInfo(Type.nothing, scan.row(), scan.col(), 0));
+				}
+				break;
+			}
+			case CRITTER:
+				state.add(critter(flags, scan.row(), scan.col()));
+				break;
+			default:
+				throw new IOException("Unknown world state entry " + kind);
+			}
+		}
+		return new WorldInfoForGet(time, worldVersion, updateSince, rate, name, population,
+				rows, columns, ids, state);
+	}
+
+	private GeneralInfo critter(int flags, int row, int col) throws IOException {
+		int id = varint();
+		String speciesId = (flags & SPECIES) != 0 ? string(species) : null;
+		int direction = varint();
+		int[] mem = new int[length()];
+		for (int k = 0; k < mem.length; k++) {
+			mem[k] = sint();
+		}
+		String hash = null;
+		String program = null;
+		int rule = 0;
+		if ((flags & OWNED) != 0) {
+			hash = string(hashes);
+			if ((flags & PROGRAM) != 0) {
+				programs.put(hash, string(length()));
+			}
+			program = programs.get(hash);
+			rule = sint();
+		}
+		return new GeneralInfo(id, speciesId, row, col, direction, mem, program, hash, rule);
+	}
+
+	/**
+	 * Reads a string sent once and then referred to by the order it was first sent in
+	 */
+	private String string(List<String> sent) throws IOException {
+		int ref = varint();
+		if (ref == 0) {
+			String s = string(length());
+			sent.add(s);
+			return s;
+		}
+		if (ref < 0 || ref > sent.size()) {
+			throw malformed();
+		}
+		return sent.get(ref - 1);
+	}
+
+	private String string(int length) throws IOException {
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int length() throws IOException {
+		int length = varint();
+		if (length < 0) {
+			throw malformed();
+		}
+		return length;
+	}
+
+	private int varint() throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.readByte();
+			v |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return v;
+			}
+		}
+		throw malformed();
+	}
+
+	private int sint() throws IOException {
+		int v = varint();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private static IOException malformed() {
+		return new IOException("Malformed world state");
+	}
+
+	/**
+	 * The hex tiles scanned by the writer, in the order it scanned them
+	 */
+	private static class Scan {
+		final int toCol, toRow, height;
+		int col, row;
+		/**
+		 * Whether the scan is at a hex tile that has been read already
+		 */
+		boolean started;
+
+		Scan(int fromCol, int toCol, int toRow, int height) {
+			this.toCol = toCol;
+			this.toRow = toRow;
+			this.height = height;
+			col = fromCol;
+			row = (col + 1) / 2;
+		}
+
+		/**
+		 * Moves past the hex tile last read and {@code n} more
+		 */
+		void skip(int n) throws IOException {
+			long left = started ? n + 1L : n;
+			started = true;
+			while (true) {
+				int end = Math.min((col + 1) / 2 + height, toRow);
+				if (row < end && left < end - row) {
+					row += left;
+					return;
+				}
+				left -= Math.max(end - row, 0);
+				col++;
+				row = (col + 1) / 2;
+				if (col >= toCol) {
+					throw malformed();
+				}
+			}
+		}
+
+		int col() {return col;}
+		int row() {return row;}
+	}
+}
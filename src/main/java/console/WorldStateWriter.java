@@ -0,0 +1,357 @@
+package console;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+import ast.Program;
+import console.DummyClassLibrary.DeadCritter;
+import console.DummyClassLibrary.Type;
+import console.WorldSnapshot.CritterView;
+
+/**
+ * Writes the response to get("/world") straight from a {@link WorldSnapshot} while
+ * scanning its hex tiles, without building a {@link DummyClassLibrary.WorldInfo} and
+ * an info object for every hex. The JSON output is the same, byte for byte, as what
+ * {@code new Gson().toJson} writes for the {@code WorldInfo} the server used to build:
+ * the same fields in the same order, fields that would be null left out, and strings
+ * escaped by Gson's own {@link JsonWriter}.
+ * <p>
+ * The same response can be written in a compact binary form instead, described at
+ * {@link #writeBinary} and read back by {@link WorldStateReader}.
+ */
+public final class WorldStateWriter {
+	/**
+	 * The media type of the binary form
+	 */
+	public static final String MEDIA_TYPE = "application/x-critter-world";
+	/**
+	 * The first bytes of the binary form
+	 */
+	static final byte[] MAGIC = {'C', 'W', 'W'};
+	/**
+	 * The version of the binary form written by {@link #writeBinary}
+	 */
+	static final int VERSION = 1;
+
+	// Kinds of entries in the binary form, in the low three bits of their first byte
+	static final int END = 0;
+	/** no operands */
+	static final int ROCK = 1;
+	/** the amount of food */
+	static final int FOOD = 2;
+	/** the number of hex tiles in the run */
+	static final int NOTHING = 3;
+	/** the critter, its optional parts marked by the flags below */
+	static final int CRITTER = 4;
+
+	// Flags of a critter entry, in the high five bits of its first byte
+	/** the program hash and the last rule follow */
+	static final int OWNED = 1;
+	/** the species follows */
+	static final int SPECIES = 2;
+	/** the text of the program follows its hash */
+	static final int PROGRAM = 4;
+
+	private final WorldSnapshot snapshot;
+	private final int sessionId;
+	private final boolean admin;
+	private final boolean inlinePrograms;
+
+	/**
+	 * Creates a writer of {@code snapshot} for the session {@code sessionId}. Critters
+	 * are described with their programs if they were placed by that session or if
+	 * {@code admin}, and the text of the programs is included if {@code inlinePrograms}.
+	 */
+	public WorldStateWriter(WorldSnapshot snapshot, int sessionId, boolean admin, boolean inlinePrograms) {
+		this.snapshot = snapshot;
+		this.sessionId = sessionId;
+		this.admin = admin;
+		this.inlinePrograms = inlinePrograms;
+	}
+
+	/**
+	 * Writes the world as a JSON object to {@code out}, with the hex tiles in columns
+	 * {@code fromCol} to {@code toCol} and rows {@code fromRow} to {@code toRow},
+	 * exclusive, that changed after version {@code updateSince}
+	 *
+	 * @param rate the rate the world is running at
+	 */
+	public void write(Writer out, int updateSince, float rate,
+			int fromRow, int toRow, int fromCol, int toCol) throws IOException {
+		JsonWriter json = new JsonWriter(out);
+		json.setHtmlSafe(true);
+		json.setLenient(true);
+		json.beginObject();
+		json.name("current_timestep").value(snapshot.numSteps());
+		json.name("current_version_number").value(snapshot.version() + 1);
+		json.name("update_since").value(updateSince);
+		// Widened, as it was when it filled the double field of WorldInfo, so 0.1 is
+		// written as 0.10000000149011612
+		json.name("rate").value((double) rate);
+		if (snapshot.name() != null) {
+			json.name("name").value(snapshot.name());
+		}
+		json.name("population").value(snapshot.critters().size());
+		json.name("rows").value(snapshot.rows());
+		json.name("cols").value(snapshot.columns());
+
+		json.name("dead_critters").beginArray();
+		for (DeadCritter d : snapshot.deadCritters()) {
+			if (d.timeOfDeath() > updateSince)
+				json.value(d.id());
+		}
+		json.endArray();
+
+		json.name("state").beginArray();
+		for (int i = fromCol; i < toCol; i++) {
+			int strtrow = (i + 1) / 2;
+			for (int j = strtrow; j < strtrow + snapshot.height() && j < toRow; j++) {
+				if (snapshot.lastUpdated(i, j) <= updateSince) {
+					continue;
+				}
+				int contents = snapshot.contents(i, j);
+				if (contents == WorldSnapshot.ROCK) {
+					json.beginObject();
+					json.name("row").value(j);
+					json.name("col").value(i);
+					json.name("type").value(Type.rock.name());
+					json.endObject();
+				} else if (contents > 0) {
+					json.beginObject();
+					json.name("row").value(j);
+					json.name("col").value(i);
+					json.name("type").value(Type.food.name());
+					json.name("value").value(contents);
+					json.endObject();
+				} else if (contents == WorldSnapshot.CRITTER) {
+					CritterView critter = snapshot.critterAt(i, j);
+					if (critter != null) {
+						writeCritter(json, critter);
+					}
+				} else if (updateSince > 0) {
+					json.beginObject();
+					json.name("type").value(Type.nothing.name());
+					json.name("row").value(j);
+					json.name("col").value(i);
+					json.endObject();
+				}
+			}
+		}
+		json.endArray();
+		json.endObject();
+		json.flush();
+	}
+
+	/**
+	 * Writes the same response as {@link #write} in binary to {@code stream}.
+	 * <p>
+	 * The response starts with {@link #MAGIC} and the version of the form. Counts and
+	 * lengths are unsigned varints of 7 bits per byte, and other numbers are
+	 * zigzag-encoded varints. Strings are a length and UTF-8 bytes. After the fields of
+	 * the world, with the rate as the four bytes of a float and the length of the name
+	 * one more than it is so that 0 stands for no name, come the columns and rows
+	 * scanned and the ids of the dead critters, each as the difference from the one
+	 * before.
+	 * <p>
+	 * Then come the changed hex tiles in the order they are scanned, each with the
+	 * number of hex tiles passed over since the previous one in place of its row and
+	 * column. A run of hex tiles that became empty is one entry with its length. A
+	 * critter's memory is packed as its length and values. Program hashes and species
+	 * are sent once and then referred to by the order they were first sent in, and the
+	 * text of a program only with the first critter that has it. An {@link #END} entry
+	 * ends the response.
+	 */
+	public void writeBinary(OutputStream stream, int updateSince, float rate,
+			int fromRow, int toRow, int fromCol, int toCol) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.write(MAGIC);
+		varint(out, VERSION);
+		sint(out, snapshot.numSteps());
+		sint(out, snapshot.version() + 1);
+		sint(out, updateSince);
+		out.writeFloat(rate);
+		if (snapshot.name() == null) {
+			varint(out, 0);
+		} else {
+			byte[] name = snapshot.name().getBytes(StandardCharsets.UTF_8);
+			varint(out, name.length + 1);
+			out.write(name);
+		}
+		varint(out, snapshot.critters().size());
+		varint(out, snapshot.rows());
+		varint(out, snapshot.columns());
+		sint(out, fromCol);
+		sint(out, toCol);
+		sint(out, toRow);
+		varint(out, snapshot.height());
+
+		int dead = 0;
+		for (DeadCritter d : snapshot.deadCritters()) {
+			if (d.timeOfDeath() > updateSince)
+				dead++;
+		}
+		varint(out, dead);
+		int previous = 0;
+		for (DeadCritter d : snapshot.deadCritters()) {
+			if (d.timeOfDeath() > updateSince) {
+				sint(out, d.id() - previous);
+				previous = d.id();
+			}
+		}
+
+		Map<String, Integer> hashes = new HashMap<String, Integer>();
+		Map<String, Integer> species = new HashMap<String, Integer>();
+		int skipped = 0;
+		int nothing = 0;
+		for (int i = fromCol; i < toCol; i++) {
+			int strtrow = (i + 1) / 2;
+			for (int j = strtrow; j < strtrow + snapshot.height() && j < toRow; j++) {
+				int contents = snapshot.contents(i, j);
+				boolean changed = snapshot.lastUpdated(i, j) > updateSince;
+				if (changed && contents == 0 && updateSince > 0) {
+					nothing++;
+					continue;
+				}
+				if (nothing > 0) {
+					out.write(NOTHING);
+					varint(out, skipped);
+					varint(out, nothing);
+					skipped = 0;
+					nothing = 0;
+				}
+				CritterView critter = contents == WorldSnapshot.CRITTER ? snapshot.critterAt(i, j) : null;
+				if (!changed || contents == 0 || (contents == WorldSnapshot.CRITTER && critter == null)) {
+					skipped++;
+					continue;
+				}
+				if (contents == WorldSnapshot.ROCK) {
+					out.write(ROCK);
+					varint(out, skipped);
+				} else if (contents > 0) {
+					out.write(FOOD);
+					varint(out, skipped);
+					varint(out, contents);
+				} else {
+					writeCritter(out, critter, skipped, hashes, species);
+				}
+				skipped = 0;
+			}
+		}
+		if (nothing > 0) {
+			out.write(NOTHING);
+			varint(out, skipped);
+			varint(out, nothing);
+		}
+		out.write(END);
+		out.flush();
+	}
+
+	/**
+	 * Writes {@code critter} in binary, {@code skipped} hex tiles after the previous entry
+	 */
+	private void writeCritter(DataOutputStream out, CritterView critter, int skipped,
+			Map<String, Integer> hashes, Map<String, Integer> species) throws IOException {
+		boolean owned = admin || sessionId == critter.sessionId();
+		Program program = critter.program();
+		String hash = owned ? program.hash() : null;
+		boolean text = owned && inlinePrograms && !hashes.containsKey(hash);
+		int flags = (owned ? OWNED : 0) | (critter.species() != null ? SPECIES : 0) | (text ? PROGRAM : 0);
+		out.write(CRITTER | flags << 3);
+		varint(out, skipped);
+		varint(out, critter.id());
+		if (critter.species() != null) {
+			string(out, critter.species(), species);
+		}
+		varint(out, critter.direction());
+		varint(out, critter.memSize());
+		for (int k = 0; k < critter.memSize(); k++) {
+			sint(out, critter.mem(k));
+		}
+		if (owned) {
+			string(out, hash, hashes);
+			if (text) {
+				byte[] bytes = program.toString().getBytes(StandardCharsets.UTF_8);
+				varint(out, bytes.length);
+				out.write(bytes);
+			}
+			sint(out, critter.lastRule() == null ? -1 : program.getIndexOf(critter.lastRule()));
+		}
+	}
+
+	/**
+	 * Writes {@code s} as the order it was first sent in, or as 0 and the string if it
+	 * is not in {@code sent}, adding it
+	 */
+	private static void string(DataOutputStream out, String s, Map<String, Integer> sent) throws IOException {
+		Integer ref = sent.get(s);
+		if (ref != null) {
+			varint(out, ref);
+			return;
+		}
+		sent.put(s, sent.size() + 1);
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		varint(out, 0);
+		varint(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Writes {@code v} as an unsigned varint
+	 */
+	private static void varint(DataOutputStream out, int v) throws IOException {
+		while ((v & ~0x7F) != 0) {
+			out.write((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.write(v);
+	}
+
+	/**
+	 * Writes {@code v} zigzag-encoded, so that small negative numbers stay short
+	 */
+	private static void sint(DataOutputStream out, int v) throws IOException {
+		varint(out, (v << 1) ^ (v >> 31));
+	}
+
+	/**
+	 * Writes {@code critter} with the fields of a {@link DummyClassLibrary.CritterInfo}
+	 */
+	private void writeCritter(JsonWriter json, CritterView critter) throws IOException {
+		boolean owned = admin || sessionId == critter.sessionId();
+		Program program = critter.program();
+		json.beginObject();
+		json.name("type").value(Type.critter.name());
+		json.name("id").value(critter.id());
+		if (owned && inlinePrograms) {
+			json.name("program").value(program.toString());
+		}
+		if (owned) {
+			json.name("program_hash").value(program.hash());
+		}
+		if (critter.species() != null) {
+			json.name("species_id").value(critter.species());
+		}
+		json.name("row").value(critter.row());
+		json.name("col").value(critter.col());
+		json.name("direction").value(critter.direction());
+		json.name("mem").beginArray();
+		for (int k = 0; k < critter.memSize(); k++) {
+			json.value(critter.mem(k));
+		}
+		json.endArray();
+		int rule = 0;
+		if (owned) {
+			rule = critter.lastRule() == null ? -1 : program.getIndexOf(critter.lastRule());
+		}
+		json.name("recently_executed_rule").value(rule);
+		json.endObject();
+	}
+}
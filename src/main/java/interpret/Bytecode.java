@@ -0,0 +1,78 @@
+package interpret;
+
+import ast.Rule;
+
+/**
+ * A critter program compiled into a flat instruction stream for {@link VirtualMachine}.
+ * Every instruction is an opcode followed by its operands, all stored in one {@code int[]}.
+ * Expressions are evaluated on an operand stack; conditions compile to conditional jumps,
+ * so {@code and} and {@code or} short-circuit exactly like {@link InterpreterImpl}.
+ */
+public final class Bytecode {
+	/** PUSH v: pushes the constant v */
+	static final int PUSH = 0;
+	/** LOADM k: pushes memory location k, used for the memory sugars */
+	static final int LOADM = 1;
+	/** LOAD: pops an index and pushes that memory location */
+	static final int LOAD = 2;
+	/** ADD: pops r, pops l, pushes l + r */
+	static final int ADD = 3;
+	/** SUB: pops r, pops l, pushes l - r */
+	static final int SUB = 4;
+	/** MUL: pops r, pops l, pushes l * r */
+	static final int MUL = 5;
+	/** DIV: pops l, pops r, pushes l / r. The divisor is evaluated first, see JZK */
+	static final int DIV = 6;
+	/** MOD: pops l, pops r, pushes l mod r. The divisor is evaluated first, see JZK */
+	static final int MOD = 7;
+	/** NEG: negates the top of the stack */
+	static final int NEG = 8;
+	/** JZK t: jumps to t if the top of the stack is 0, keeping it as the result */
+	static final int JZK = 9;
+	/** SMELL: pushes the smell sensor */
+	static final int SMELL = 10;
+	/** RANDOM: pops n, pushes a random number below n, or 0 if n is less than 2 */
+	static final int RANDOM = 11;
+	/** AHEAD: pops a distance, pushes the ahead sensor */
+	static final int AHEAD = 12;
+	/** NEARBY: pops a direction, pushes the nearby sensor */
+	static final int NEARBY = 13;
+	/** JREL op t: pops r, pops l, jumps to t if l op r, op being a {@code RelationCondition.Operator} ordinal */
+	static final int JREL = 14;
+	/** STOREM k: pops a value and stores it at memory location k */
+	static final int STOREM = 15;
+	/** STORE: pops a value, pops an index, stores the value at that memory location */
+	static final int STORE = 16;
+	/** ACT a r: carries out action a chosen by rule r and ends the pass with true */
+	static final int ACT = 17;
+	/** ACTV a r: like ACT, for the actions that take the value popped from the stack */
+	static final int ACTV = 18;
+	/** END: ends the pass with false, no rule chose an action */
+	static final int END = 19;
+
+	/**
+	 * The instructions
+	 */
+	final int[] code;
+	/**
+	 * The rules of the program, by the index used in ACT and ACTV
+	 */
+	final Rule[] rules;
+	/**
+	 * The deepest the operand stack gets
+	 */
+	final int maxStack;
+
+	Bytecode(int[] code, Rule[] rules, int maxStack) {
+		this.code = code;
+		this.rules = rules;
+		this.maxStack = maxStack;
+	}
+
+	/**
+	 * Returns the number of ints in the instruction stream
+	 */
+	public int length() {
+		return code.length;
+	}
+}
@@ -0,0 +1,18 @@
+package interpret;
+
+import ast.Rule;
+import console.Critter;
+
+/**
+ * A critter program compiled by {@link JitCompiler} into a JVM class.
+ */
+public interface CompiledRules {
+	/**
+	 * Executes the program once for {@code critter}, like
+	 * {@link Interpreter#interpretProgram(ast.Program)}.
+	 * @param deferActions true if the chosen action is only to be recorded on the critter
+	 * @param rules the rules of the program, by the index they were compiled with
+	 * @return true if a rule chose an action
+	 */
+	boolean run(Critter critter, boolean deferActions, Rule[] rules);
+}
@@ -0,0 +1,133 @@
+package interpret;
+
+import ast.Program;
+import ast.Rule;
+
+/**
+ * The execution state of one version of a critter program: how often it has run and the
+ * compiled forms it has reached. A program drops its profile whenever it changes, so
+ * everything here describes the rules as they were when the profile was created.
+ */
+public class ExecutionProfile {
+	/**
+	 * Stands for the bytecode of a program that cannot be compiled
+	 */
+	private static final Bytecode UNCOMPILABLE = new Bytecode(new int[0], new Rule[0], 0);
+
+	/**
+	 * The program this profile belongs to
+	 */
+	private final Program program;
+	/**
+	 * Number of times the program has been run. Updated without synchronization, so
+	 * concurrent runs may be lost; it only steers tiering.
+	 */
+	private int runs;
+	/**
+	 * The optimized form of the program, null until it is first needed
+	 */
+	private volatile OptimizedProgram optimized;
+	/**
+	 * The bytecode of the program, {@link #UNCOMPILABLE} if it cannot be compiled, and
+	 * null until it is first needed. Programs are shared by critters planned on several
+	 * threads, so it is compiled under the profile's lock and published once.
+	 */
+	private volatile Bytecode bytecode;
+	/**
+	 * The rules reported as fired, by the index the JIT-compiled code refers to them with
+	 */
+	private Rule[] rules;
+	/**
+	 * The JIT-compiled program, null until background compilation finishes
+	 */
+	private volatile CompiledRules jitCode;
+	/**
+	 * True once the program has been handed to the JIT
+	 */
+	private volatile boolean jitRequested;
+
+	public ExecutionProfile(Program program) {
+		this.program = program;
+	}
+
+	/**
+	 * Counts one more run of the program and returns the new count
+	 */
+	int countRun() {
+		if (runs < Integer.MAX_VALUE) {
+			runs++;
+		}
+		return runs;
+	}
+
+	/**
+	 * Returns the optimized form of the program, which all tiers execute
+	 */
+	public OptimizedProgram getOptimized() {
+		OptimizedProgram o = optimized;
+		if (o == null) {
+			o = ProgramOptimizer.optimize(program);
+			optimized = o;
+		}
+		return o;
+	}
+
+	/**
+	 * Returns the bytecode of the program, compiling it if needed. Null if the program
+	 * cannot be compiled.
+	 */
+	public Bytecode getBytecode() {
+		Bytecode b = bytecode;
+		if (b == null) {
+			synchronized (this) {
+				b = bytecode;
+				if (b == null) {
+					b = ProgramCompiler.compile(getOptimized());
+					if (b == null) {
+						b = UNCOMPILABLE;
+					}
+					bytecode = b;
+				}
+			}
+		}
+		return b == UNCOMPILABLE ? null : b;
+	}
+
+	/**
+	 * Returns the JIT-compiled program, null if it is not available (yet)
+	 */
+	CompiledRules getJitCode() {
+		return jitCode;
+	}
+
+	/**
+	 * Returns the rules the JIT-compiled program refers to
+	 */
+	Rule[] getRules() {
+		return rules;
+	}
+
+	/**
+	 * Hands the program to the JIT, unless that was done before
+	 */
+	void requestJit() {
+		if (jitRequested) {
+			return;
+		}
+		jitRequested = true;
+		OptimizedProgram o = getOptimized();
+		Rule[] r = new Rule[o.getProgram().numberOfRules()];
+		for (int i = 0; i < r.length; i++) {
+			r[i] = o.getProgram().get(i);
+		}
+		rules = o.getOrigins();
+		JitCompiler.compileInBackground(this, r);
+	}
+
+	/**
+	 * Installs the JIT-compiled program
+	 */
+	void setJitCode(CompiledRules code) {
+		jitCode = code;
+	}
+}
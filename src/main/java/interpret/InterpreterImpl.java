@@ -1,8 +1,9 @@
 package interpret;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import ast.Action;
+import ast.ActionImpl.Actions;
 import ast.BinaryCondition;
 import ast.NumExpr;
 import ast.Program;
@@ -19,13 +20,46 @@ import console.Critter;
 
 public class InterpreterImpl implements Interpreter{
 	private Critter critter;
+	/**
+	 * Stream that RANDOM draws from: the critter's own stream, or an unseeded
+	 * one when there is no critter
+	 */
+	private SplittableRandom rand;
+	/**
+	 * True if actions are only recorded on the critter instead of carried out
+	 */
+	private boolean deferActions;
 	
 	public InterpreterImpl(Critter critter) {
+		this(critter, false);
+	}
+	
+	/**
+	 * Creates an interpreter for {@code critter}. If {@code deferActions} is true, the
+	 * action a rule chooses is handed to {@link Critter#planAction} instead of being
+	 * carried out.
+	 */
+	public InterpreterImpl(Critter critter, boolean deferActions) {
 		this.critter = critter;
+		this.rand = critter != null ? critter.getRandom() : new SplittableRandom();
+		this.deferActions = deferActions;
 	}
 	
 	@Override
 	public boolean interpretProgram(Program p) {
+		return interpretProgram(p, null);
+	}
+	
+	/**
+	 * Executes the optimized program {@code o} once, reporting the rules it came from
+	 * as the ones that fired
+	 * @return true if a rule chose an action
+	 */
+	public boolean interpretProgram(OptimizedProgram o) {
+		return interpretProgram(o.getProgram(), o);
+	}
+	
+	private boolean interpretProgram(Program p, OptimizedProgram o) {
 		Rule r = null;
 		for (int i = 0; i < p.numberOfRules(); i++) {
 			r = p.get(i);
@@ -37,7 +71,7 @@ public class InterpreterImpl implements Interpreter{
 				}
 				if (r.actionExists()) {
 					r.getAction().accept(this);
-					critter.setLastRule(r);
+					critter.setLastRule(o == null ? r : o.getOrigin(i));
 					return true; 
 				}
 				
@@ -119,7 +153,6 @@ public class InterpreterImpl implements Interpreter{
 		case SMELL:
 			return critter.smell();
 		case RANDOM:
-			Random rand = new Random();
 			int upperBound = t.getSensorExpr().accept(this); 
 			if (upperBound < 2) {
 				return 0; 
@@ -167,6 +200,13 @@ public class InterpreterImpl implements Interpreter{
 	@Override
 	public void eval(Action a) {
 		int value = 0;
+		if (deferActions) {
+			if (a.getActionType() == Actions.TAG || a.getActionType() == Actions.SERVE) {
+				value = a.getExpr().accept(this);
+			}
+			critter.planAction(a.getActionType(), value);
+			return;
+		}
 		switch(a.getActionType()) {
 		case WAIT:
 			critter.critterWait();;
@@ -0,0 +1,519 @@
+package interpret;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ast.Action;
+import ast.ActionImpl.Actions;
+import ast.BinaryCondition;
+import ast.Condition;
+import ast.Expr;
+import ast.FactorExpr;
+import ast.MemExpr;
+import ast.NumExpr;
+import ast.RelationCondition;
+import ast.Rule;
+import ast.SensorExpr;
+import ast.TermExpr;
+import ast.UnaryExpr;
+import ast.Update;
+
+/**
+ * Compiles critter programs into hidden JVM classes implementing {@link CompiledRules}.
+ * Each rule becomes straight-line JVM bytecode that calls the sensor, memory and action
+ * methods of {@code Critter} directly, evaluating operands in the same order as
+ * {@link InterpreterImpl}. The class file is written by hand, with version 49 so that it
+ * needs no stack map frames, and defined with {@link MethodHandles.Lookup#defineHiddenClass},
+ * so no library beyond the JDK is needed and the class is unloaded with its program.
+ */
+public class JitCompiler {
+	private static final String CRITTER = "console/Critter";
+	private static final String SUPPORT = "interpret/JitSupport";
+
+	private static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13;
+	private static final int ILOAD = 0x15, ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ILOAD_2 = 0x1c, ALOAD_3 = 0x2d;
+	private static final int ISTORE = 0x36, DUP = 0x59;
+	private static final int IADD = 0x60, ISUB = 0x64, IMUL = 0x68, IDIV = 0x6c, IREM = 0x70, INEG = 0x74;
+	private static final int IFNE = 0x9a, IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0, IF_ICMPLT = 0xa1,
+			IF_ICMPGE = 0xa2, IF_ICMPGT = 0xa3, IF_ICMPLE = 0xa4, GOTO = 0xa7;
+	private static final int IRETURN = 0xac, RETURN = 0xb1;
+	private static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8;
+	/**
+	 * First local variable free for temporaries: this, critter, deferActions and rules come first
+	 */
+	private static final int FIRST_TEMP = 4;
+
+	/**
+	 * The thread that compiles programs in the background
+	 */
+	private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "critter-jit");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * The constant pool, by entry
+	 */
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream poolOut = new DataOutputStream(pool);
+	private final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+	private int poolCount = 1;
+
+	private byte[] code = new byte[256];
+	private int length;
+	private int depth;
+	private int maxDepth;
+	private int nextTemp = FIRST_TEMP;
+	private int maxTemp = FIRST_TEMP;
+	private int[] labels = new int[16];
+	private int numLabels;
+	/**
+	 * Pairs of (position of a branch instruction, label it jumps to)
+	 */
+	private int[] fixups = new int[32];
+	private int numFixups;
+
+	private JitCompiler() {
+	}
+
+	/**
+	 * Compiles {@code rules} on the background thread and installs the result in {@code profile}
+	 */
+	static void compileInBackground(ExecutionProfile profile, Rule[] rules) {
+		BACKGROUND.execute(() -> {
+			CompiledRules code = compile(rules);
+			if (code != null) {
+				profile.setJitCode(code);
+			}
+		});
+	}
+
+	/**
+	 * Compiles the program made of {@code rules}.
+	 * @return the compiled program, or null if it cannot be compiled, in which case
+	 * it stays with the slower tiers
+	 */
+	public static CompiledRules compile(Rule[] rules) {
+		try {
+			byte[] bytes = new JitCompiler().classFile(rules);
+			if (bytes == null) {
+				return null;
+			}
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			return (CompiledRules) lookup.findConstructor(lookup.lookupClass(),
+					MethodType.methodType(void.class)).invoke();
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the class file for {@code rules}, null if the code is too large for a method
+	 */
+	private byte[] classFile(Rule[] rules) throws IOException {
+		for (int i = 0; i < rules.length; i++) {
+			rule(rules[i], i);
+		}
+		emit(ICONST_0);
+		emit(IRETURN);
+		if (length > Short.MAX_VALUE) {
+			return null;
+		}
+		for (int i = 0; i < numFixups; i += 2) {
+			int at = fixups[i];
+			int offset = labels[fixups[i + 1]] - at;
+			code[at + 1] = (byte) (offset >> 8);
+			code[at + 2] = (byte) offset;
+		}
+
+		int thisClass = classRef("interpret/JitProgram");
+		int superClass = classRef("java/lang/Object");
+		int iface = classRef("interpret/CompiledRules");
+		int codeName = utf8("Code");
+		int initName = utf8("<init>");
+		int initDesc = utf8("()V");
+		int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+		int runName = utf8("run");
+		int runDesc = utf8("(L" + CRITTER + ";Z[Last/Rule;)Z");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(49);
+		out.writeShort(poolCount);
+		poolOut.flush();
+		pool.writeTo(out);
+		out.writeShort(0x0001 | 0x0010 | 0x0020);
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(1);
+		out.writeShort(iface);
+		out.writeShort(0);
+		out.writeShort(2);
+
+		byte[] init = {(byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+				(byte) RETURN};
+		method(out, initName, initDesc, codeName, 1, 1, init, init.length);
+		method(out, runName, runDesc, codeName, maxDepth, maxTemp, code, length);
+		out.writeShort(0);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void method(DataOutputStream out, int name, int desc, int codeName,
+			int maxStack, int maxLocals, byte[] body, int bodyLength) throws IOException {
+		out.writeShort(0x0001);
+		out.writeShort(name);
+		out.writeShort(desc);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(12 + bodyLength);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(bodyLength);
+		out.write(body, 0, bodyLength);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	private void rule(Rule r, int index) {
+		int next = newLabel();
+		condition(r.getCondition(), next, false);
+		for (int i = 0; i < r.numberOfUpdates(); i++) {
+			update(r.getUpdate(i));
+		}
+		if (r.actionExists()) {
+			Action a = r.getAction();
+			Actions type = a.getActionType();
+			emit(ALOAD_1);
+			emit(ILOAD_2);
+			emit(ALOAD_3);
+			stack(3);
+			pushInt(type.ordinal());
+			if (type == Actions.TAG || type == Actions.SERVE) {
+				expr(a.getExpr());
+			}
+			else {
+				pushInt(0);
+			}
+			pushInt(index);
+			invoke(INVOKESTATIC, SUPPORT, "act", "(L" + CRITTER + ";Z[Last/Rule;III)Z", -5);
+			emit(IRETURN);
+			stack(-1);
+		}
+		place(next);
+	}
+
+	private void update(Update u) {
+		if (!(u.getExprOne() instanceof MemExpr)) {
+			throw new IllegalArgumentException();
+		}
+		MemExpr m = (MemExpr) u.getExprOne();
+		emit(ALOAD_1);
+		stack(1);
+		if (m.getMemSugar() != null) {
+			pushInt(m.getMemSugar().getValue());
+		}
+		else {
+			expr(m.getExpr());
+		}
+		expr(u.getExprTwo());
+		invoke(INVOKEVIRTUAL, CRITTER, "setMemoryValue", "(II)V", -3);
+	}
+
+	/**
+	 * Emits code that jumps to {@code target} if {@code c} evaluates to {@code when},
+	 * and falls through otherwise
+	 */
+	private void condition(Condition c, int target, boolean when) {
+		if (c instanceof RelationCondition) {
+			RelationCondition r = (RelationCondition) c;
+			expr(r.getExprOne());
+			expr(r.getExprTwo());
+			int op;
+			switch (r.getOperator()) {
+			case LT:
+				op = when ? IF_ICMPLT : IF_ICMPGE;
+				break;
+			case LE:
+				op = when ? IF_ICMPLE : IF_ICMPGT;
+				break;
+			case EQ:
+				op = when ? IF_ICMPEQ : IF_ICMPNE;
+				break;
+			case GE:
+				op = when ? IF_ICMPGE : IF_ICMPLT;
+				break;
+			case GT:
+				op = when ? IF_ICMPGT : IF_ICMPLE;
+				break;
+			case NE:
+				op = when ? IF_ICMPNE : IF_ICMPEQ;
+				break;
+			default:
+				throw new IllegalArgumentException();
+			}
+			branch(op, target);
+			stack(-2);
+		}
+		else if (c instanceof BinaryCondition) {
+			BinaryCondition b = (BinaryCondition) c;
+			boolean and = b.getOperator() == BinaryCondition.Operator.AND;
+			if (and != when) {
+				condition(b.getConditionOne(), target, when);
+				condition(b.getConditionTwo(), target, when);
+			}
+			else {
+				int skip = newLabel();
+				condition(b.getConditionOne(), skip, !when);
+				condition(b.getConditionTwo(), target, when);
+				place(skip);
+			}
+		}
+		else {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	private void expr(Expr e) {
+		if (e instanceof NumExpr) {
+			pushInt(((NumExpr) e).getValue());
+		}
+		else if (e instanceof MemExpr) {
+			MemExpr m = (MemExpr) e;
+			emit(ALOAD_1);
+			stack(1);
+			if (m.getMemSugar() != null) {
+				pushInt(m.getMemSugar().getValue());
+			}
+			else {
+				expr(m.getExpr());
+			}
+			invoke(INVOKEVIRTUAL, CRITTER, "getMemoryValue", "(I)I", -1);
+		}
+		else if (e instanceof SensorExpr) {
+			SensorExpr s = (SensorExpr) e;
+			switch (s.getSensorType()) {
+			case SMELL:
+				emit(ALOAD_1);
+				stack(1);
+				invoke(INVOKEVIRTUAL, CRITTER, "smell", "()I", 0);
+				break;
+			case RANDOM:
+				emit(ALOAD_1);
+				stack(1);
+				expr(s.getSensorExpr());
+				invoke(INVOKESTATIC, SUPPORT, "random", "(L" + CRITTER + ";I)I", -1);
+				break;
+			case AHEAD:
+				emit(ALOAD_1);
+				stack(1);
+				expr(s.getSensorExpr());
+				invoke(INVOKEVIRTUAL, CRITTER, "ahead", "(I)I", -1);
+				break;
+			case NEARBY:
+				emit(ALOAD_1);
+				stack(1);
+				expr(s.getSensorExpr());
+				invoke(INVOKEVIRTUAL, CRITTER, "nearby", "(I)I", -1);
+				break;
+			default:
+				throw new IllegalArgumentException();
+			}
+		}
+		else if (e instanceof TermExpr) {
+			TermExpr t = (TermExpr) e;
+			expr(t.getExprOne());
+			expr(t.getExprTwo());
+			emit(t.getOperator() == TermExpr.Operator.PLUS ? IADD : ISUB);
+			stack(-1);
+		}
+		else if (e instanceof FactorExpr) {
+			FactorExpr f = (FactorExpr) e;
+			if (f.getOperator() == FactorExpr.Operator.MUL) {
+				expr(f.getExprOne());
+				expr(f.getExprTwo());
+				emit(IMUL);
+				stack(-1);
+			}
+			else {
+				if (nextTemp > 255) {
+					throw new IllegalArgumentException();
+				}
+				int divisor = nextTemp++;
+				maxTemp = Math.max(maxTemp, nextTemp);
+				int nonZero = newLabel();
+				int end = newLabel();
+				expr(f.getExprTwo());
+				emit(DUP);
+				stack(1);
+				emit(ISTORE, divisor);
+				stack(-1);
+				branch(IFNE, nonZero);
+				stack(-1);
+				pushInt(0);
+				branch(GOTO, end);
+				stack(-1);
+				place(nonZero);
+				expr(f.getExprOne());
+				emit(ILOAD, divisor);
+				stack(1);
+				emit(f.getOperator() == FactorExpr.Operator.DIV ? IDIV : IREM);
+				stack(-1);
+				place(end);
+				nextTemp--;
+			}
+		}
+		else if (e instanceof UnaryExpr) {
+			expr(((UnaryExpr) e).getExpr());
+			emit(INEG);
+		}
+		else {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	private void pushInt(int v) {
+		if (v >= -1 && v <= 5) {
+			emit(ICONST_0 + v);
+		}
+		else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+			emit(BIPUSH, v & 0xff);
+		}
+		else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+			emit(SIPUSH, (v >> 8) & 0xff, v & 0xff);
+		}
+		else {
+			int index = integer(v);
+			emit(LDC_W, index >> 8, index & 0xff);
+		}
+		stack(1);
+	}
+
+	/**
+	 * Emits a method call that changes the depth of the operand stack by {@code effect}
+	 */
+	private void invoke(int opcode, String owner, String name, String desc, int effect) {
+		int index = methodRef(owner, name, desc);
+		emit(opcode, index >> 8, index & 0xff);
+		stack(effect);
+	}
+
+	private void stack(int delta) {
+		depth += delta;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	private int newLabel() {
+		if (numLabels == labels.length) {
+			labels = Arrays.copyOf(labels, numLabels * 2);
+		}
+		labels[numLabels] = -1;
+		return numLabels++;
+	}
+
+	private void place(int label) {
+		labels[label] = length;
+	}
+
+	private void branch(int opcode, int label) {
+		if (numFixups + 2 > fixups.length) {
+			fixups = Arrays.copyOf(fixups, fixups.length * 2);
+		}
+		fixups[numFixups++] = length;
+		fixups[numFixups++] = label;
+		emit(opcode, 0, 0);
+	}
+
+	private void emit(int... bytes) {
+		if (length + bytes.length > code.length) {
+			code = Arrays.copyOf(code, code.length * 2 + bytes.length);
+		}
+		for (int b : bytes) {
+			code[length++] = (byte) b;
+		}
+	}
+
+	private int utf8(String s) {
+		Integer index = poolIndex.get("U" + s);
+		if (index != null) {
+			return index;
+		}
+		try {
+			poolOut.writeByte(1);
+			poolOut.writeUTF(s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		poolIndex.put("U" + s, poolCount);
+		return poolCount++;
+	}
+
+	private int classRef(String name) {
+		Integer index = poolIndex.get("C" + name);
+		if (index != null) {
+			return index;
+		}
+		int nameIndex = utf8(name);
+		return entry("C" + name, 7, nameIndex, -1);
+	}
+
+	private int methodRef(String owner, String name, String desc) {
+		String key = "M" + owner + "." + name + desc;
+		Integer index = poolIndex.get(key);
+		if (index != null) {
+			return index;
+		}
+		int ownerIndex = classRef(owner);
+		int nameIndex = utf8(name);
+		int descIndex = utf8(desc);
+		int nameAndType = entry("N" + name + desc, 12, nameIndex, descIndex);
+		return entry(key, 10, ownerIndex, nameAndType);
+	}
+
+	private int integer(int v) {
+		Integer index = poolIndex.get("I" + v);
+		if (index != null) {
+			return index;
+		}
+		try {
+			poolOut.writeByte(3);
+			poolOut.writeInt(v);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		poolIndex.put("I" + v, poolCount);
+		return poolCount++;
+	}
+
+	/**
+	 * Adds a constant pool entry made of a tag and one or two indices, unless it exists
+	 */
+	private int entry(String key, int tag, int first, int second) {
+		Integer index = poolIndex.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			poolOut.writeByte(tag);
+			poolOut.writeShort(first);
+			if (second >= 0) {
+				poolOut.writeShort(second);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		poolIndex.put(key, poolCount);
+		return poolCount++;
+	}
+}
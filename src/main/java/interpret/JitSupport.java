@@ -0,0 +1,38 @@
+package interpret;
+
+import ast.ActionImpl.Actions;
+import ast.Rule;
+import console.Critter;
+
+/**
+ * Static helpers called by the classes {@link JitCompiler} generates, for the steps that
+ * are more than a single call on the critter.
+ */
+final class JitSupport {
+	private static final Actions[] ACTIONS = Actions.values();
+
+	private JitSupport() {
+	}
+
+	/**
+	 * The RANDOM sensor: a random number below {@code bound}, or 0 if it is less than 2
+	 */
+	static int random(Critter critter, int bound) {
+		return bound < 2 ? 0 : critter.getRandom().nextInt(bound);
+	}
+
+	/**
+	 * Carries out or records the action chosen by rule {@code rule}
+	 * @return true
+	 */
+	static boolean act(Critter critter, boolean deferActions, Rule[] rules, int action, int value, int rule) {
+		if (deferActions) {
+			critter.planAction(ACTIONS[action], value);
+		}
+		else {
+			critter.performAction(ACTIONS[action], value);
+		}
+		critter.setLastRule(rules[rule]);
+		return true;
+	}
+}
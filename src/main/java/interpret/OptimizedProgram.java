@@ -0,0 +1,58 @@
+package interpret;
+
+import ast.Program;
+import ast.Rule;
+
+/**
+ * A program produced by {@link ProgramOptimizer}, only meant to be executed. Each of its
+ * rules remembers the rule of the original program it came from, which is the one
+ * reported to the critter as the last rule that fired.
+ */
+public class OptimizedProgram {
+	private final Program program;
+	/**
+	 * The rule of the original program behind each rule of {@code program}, by index
+	 */
+	private final Rule[] origins;
+	/**
+	 * True if no rule of the program can read PASS or draw a random number
+	 */
+	private final boolean passIndependent;
+
+	OptimizedProgram(Program program, Rule[] origins, boolean passIndependent) {
+		this.program = program;
+		this.origins = origins;
+		this.passIndependent = passIndependent;
+	}
+
+	/**
+	 * Returns true if the program behaves the same in every pass of a turn that starts
+	 * with the same memory: no rule can read PASS or draw a random number
+	 */
+	public boolean isPassIndependent() {
+		return passIndependent;
+	}
+
+	/**
+	 * Returns the optimized program
+	 */
+	public Program getProgram() {
+		return program;
+	}
+
+	/**
+	 * Returns the rule of the original program that rule {@code index} of the optimized
+	 * program came from
+	 */
+	public Rule getOrigin(int index) {
+		return origins[index];
+	}
+
+	/**
+	 * Returns the rules of the original program, by the index of the optimized rule they
+	 * became. Not to be modified.
+	 */
+	Rule[] getOrigins() {
+		return origins;
+	}
+}
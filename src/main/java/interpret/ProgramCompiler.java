@@ -0,0 +1,287 @@
+package interpret;
+
+import java.util.Arrays;
+
+import ast.Action;
+import ast.ActionImpl.Actions;
+import ast.BinaryCondition;
+import ast.Condition;
+import ast.Expr;
+import ast.FactorExpr;
+import ast.MemExpr;
+import ast.NumExpr;
+import ast.Program;
+import ast.RelationCondition;
+import ast.Rule;
+import ast.SensorExpr;
+import ast.TermExpr;
+import ast.UnaryExpr;
+import ast.Update;
+
+/**
+ * Compiles a critter program into {@link Bytecode}. Operands are emitted in the same order
+ * {@link InterpreterImpl} evaluates them, so sensors and RANDOM see the same calls.
+ */
+public class ProgramCompiler {
+	/**
+	 * Relation operator that holds exactly when the one at the same ordinal does not
+	 */
+	private static final RelationCondition.Operator[] NEGATION = new RelationCondition.Operator[6];
+	static {
+		NEGATION[RelationCondition.Operator.LT.ordinal()] = RelationCondition.Operator.GE;
+		NEGATION[RelationCondition.Operator.LE.ordinal()] = RelationCondition.Operator.GT;
+		NEGATION[RelationCondition.Operator.EQ.ordinal()] = RelationCondition.Operator.NE;
+		NEGATION[RelationCondition.Operator.GE.ordinal()] = RelationCondition.Operator.LT;
+		NEGATION[RelationCondition.Operator.GT.ordinal()] = RelationCondition.Operator.LE;
+		NEGATION[RelationCondition.Operator.NE.ordinal()] = RelationCondition.Operator.EQ;
+	}
+
+	private int[] code = new int[64];
+	private int length;
+	private int depth;
+	private int maxDepth;
+	/**
+	 * Position of each label, -1 while it is not placed
+	 */
+	private int[] labels = new int[16];
+	private int numLabels;
+	/**
+	 * Positions in the code holding a label number to be replaced by the label's position
+	 */
+	private int[] fixups = new int[16];
+	private int numFixups;
+
+	private ProgramCompiler() {
+	}
+
+	/**
+	 * Compiles {@code p}.
+	 * @return the compiled program, or null if {@code p} holds a node the compiler does
+	 * not handle, in which case it has to be interpreted
+	 */
+	public static Bytecode compile(Program p) {
+		Rule[] rules = new Rule[p.numberOfRules()];
+		for (int i = 0; i < rules.length; i++) {
+			rules[i] = p.get(i);
+		}
+		return compile(p, rules);
+	}
+
+	/**
+	 * Compiles the optimized program {@code o}, reporting the rules it came from as the
+	 * ones that fired.
+	 * @return the compiled program, or null if it has to be interpreted
+	 */
+	public static Bytecode compile(OptimizedProgram o) {
+		return compile(o.getProgram(), o.getOrigins());
+	}
+
+	/**
+	 * Compiles {@code p}, where rule i fires as {@code reported[i]}
+	 */
+	private static Bytecode compile(Program p, Rule[] reported) {
+		ProgramCompiler c = new ProgramCompiler();
+		try {
+			for (int i = 0; i < p.numberOfRules(); i++) {
+				c.rule(p.get(i), i);
+			}
+		} catch (IllegalArgumentException | NullPointerException e) {
+			return null;
+		}
+		c.emit(Bytecode.END);
+		return c.finish(reported);
+	}
+
+	private void rule(Rule r, int index) {
+		int next = newLabel();
+		condition(r.getCondition(), next, false);
+		for (int i = 0; i < r.numberOfUpdates(); i++) {
+			update(r.getUpdate(i));
+		}
+		if (r.actionExists()) {
+			Action a = r.getAction();
+			Actions type = a.getActionType();
+			if (type == Actions.TAG || type == Actions.SERVE) {
+				expr(a.getExpr());
+				emit(Bytecode.ACTV, type.ordinal(), index);
+				pop(1);
+			}
+			else {
+				emit(Bytecode.ACT, type.ordinal(), index);
+			}
+		}
+		place(next);
+	}
+
+	private void update(Update u) {
+		if (!(u.getExprOne() instanceof MemExpr)) {
+			throw new IllegalArgumentException();
+		}
+		MemExpr m = (MemExpr) u.getExprOne();
+		if (m.getMemSugar() != null) {
+			expr(u.getExprTwo());
+			emit(Bytecode.STOREM, m.getMemSugar().getValue());
+			pop(1);
+		}
+		else {
+			expr(m.getExpr());
+			expr(u.getExprTwo());
+			emit(Bytecode.STORE);
+			pop(2);
+		}
+	}
+
+	/**
+	 * Emits code that jumps to {@code target} if {@code c} evaluates to {@code when},
+	 * and falls through otherwise
+	 */
+	private void condition(Condition c, int target, boolean when) {
+		if (c instanceof RelationCondition) {
+			RelationCondition r = (RelationCondition) c;
+			expr(r.getExprOne());
+			expr(r.getExprTwo());
+			RelationCondition.Operator op = when ? r.getOperator() : NEGATION[r.getOperator().ordinal()];
+			emitJump(Bytecode.JREL, op.ordinal(), target);
+			pop(2);
+		}
+		else if (c instanceof BinaryCondition) {
+			BinaryCondition b = (BinaryCondition) c;
+			boolean and = b.getOperator() == BinaryCondition.Operator.AND;
+			if (and != when) {
+				condition(b.getConditionOne(), target, when);
+				condition(b.getConditionTwo(), target, when);
+			}
+			else {
+				int skip = newLabel();
+				condition(b.getConditionOne(), skip, !when);
+				condition(b.getConditionTwo(), target, when);
+				place(skip);
+			}
+		}
+		else {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	private void expr(Expr e) {
+		if (e instanceof NumExpr) {
+			emit(Bytecode.PUSH, ((NumExpr) e).getValue());
+			push();
+		}
+		else if (e instanceof MemExpr) {
+			MemExpr m = (MemExpr) e;
+			if (m.getMemSugar() != null) {
+				emit(Bytecode.LOADM, m.getMemSugar().getValue());
+				push();
+			}
+			else {
+				expr(m.getExpr());
+				emit(Bytecode.LOAD);
+			}
+		}
+		else if (e instanceof SensorExpr) {
+			SensorExpr s = (SensorExpr) e;
+			switch (s.getSensorType()) {
+			case SMELL:
+				emit(Bytecode.SMELL);
+				push();
+				break;
+			case RANDOM:
+				expr(s.getSensorExpr());
+				emit(Bytecode.RANDOM);
+				break;
+			case AHEAD:
+				expr(s.getSensorExpr());
+				emit(Bytecode.AHEAD);
+				break;
+			case NEARBY:
+				expr(s.getSensorExpr());
+				emit(Bytecode.NEARBY);
+				break;
+			default:
+				throw new IllegalArgumentException();
+			}
+		}
+		else if (e instanceof TermExpr) {
+			TermExpr t = (TermExpr) e;
+			expr(t.getExprOne());
+			expr(t.getExprTwo());
+			emit(t.getOperator() == TermExpr.Operator.PLUS ? Bytecode.ADD : Bytecode.SUB);
+			pop(1);
+		}
+		else if (e instanceof FactorExpr) {
+			FactorExpr f = (FactorExpr) e;
+			if (f.getOperator() == FactorExpr.Operator.MUL) {
+				expr(f.getExprOne());
+				expr(f.getExprTwo());
+				emit(Bytecode.MUL);
+				pop(1);
+			}
+			else {
+				int end = newLabel();
+				expr(f.getExprTwo());
+				emitJump(Bytecode.JZK, end);
+				expr(f.getExprOne());
+				emit(f.getOperator() == FactorExpr.Operator.DIV ? Bytecode.DIV : Bytecode.MOD);
+				pop(1);
+				place(end);
+			}
+		}
+		else if (e instanceof UnaryExpr) {
+			expr(((UnaryExpr) e).getExpr());
+			emit(Bytecode.NEG);
+		}
+		else {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	private void push() {
+		depth++;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	private void pop(int n) {
+		depth -= n;
+	}
+
+	private int newLabel() {
+		if (numLabels == labels.length) {
+			labels = Arrays.copyOf(labels, numLabels * 2);
+		}
+		labels[numLabels] = -1;
+		return numLabels++;
+	}
+
+	private void place(int label) {
+		labels[label] = length;
+	}
+
+	private void emit(int... ints) {
+		if (length + ints.length > code.length) {
+			code = Arrays.copyOf(code, Math.max(code.length * 2, length + ints.length));
+		}
+		for (int i : ints) {
+			code[length++] = i;
+		}
+	}
+
+	/**
+	 * Emits a jump instruction whose last operand is {@code label}
+	 */
+	private void emitJump(int opcode, int... operands) {
+		emit(opcode);
+		emit(operands);
+		if (numFixups == fixups.length) {
+			fixups = Arrays.copyOf(fixups, numFixups * 2);
+		}
+		fixups[numFixups++] = length - 1;
+	}
+
+	private Bytecode finish(Rule[] rules) {
+		for (int i = 0; i < numFixups; i++) {
+			code[fixups[i]] = labels[code[fixups[i]]];
+		}
+		return new Bytecode(Arrays.copyOf(code, length), rules, maxDepth);
+	}
+}
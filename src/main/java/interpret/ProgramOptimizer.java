@@ -0,0 +1,411 @@
+package interpret;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.Action;
+import ast.ActionImpl;
+import ast.BinaryCondition;
+import ast.Condition;
+import ast.Expr;
+import ast.FactorExpr;
+import ast.MemExpr;
+import ast.NumExpr;
+import ast.Program;
+import ast.ProgramImpl;
+import ast.RelationCondition;
+import ast.Rule;
+import ast.SensorExpr;
+import ast.TermExpr;
+import ast.UnaryExpr;
+import ast.Update;
+import ast.UpdateImpl;
+
+/**
+ * Rewrites a critter program into an equivalent one that is cheaper to execute. The pass
+ * folds constant expressions, simplifies conditions whose outcome is known and removes
+ * rules that can never fire or never do anything. The result is built from new nodes, so
+ * the program it came from is left as it is for mutation and printing.
+ * <p>
+ * Every rewrite keeps what the program does to the critter: an operand is only dropped if
+ * {@link InterpreterImpl} would not evaluate it either, or if evaluating it cannot draw a
+ * random number, read memory out of bounds or otherwise be observed.
+ */
+public class ProgramOptimizer {
+	/**
+	 * Memory locations every critter has, which can be read without any check
+	 */
+	private static final int MIN_MEMSIZE = 8;
+
+	private ProgramOptimizer() {
+	}
+
+	/**
+	 * Optimizes {@code p}.
+	 * @return the optimized program, with the rule of {@code p} each of its rules came from
+	 */
+	public static OptimizedProgram optimize(Program p) {
+		ProgramImpl out = new ProgramImpl();
+		List<Rule> origins = new ArrayList<Rule>();
+		for (int i = 0; i < p.numberOfRules(); i++) {
+			Rule r = p.get(i);
+			Condition c = condition(r.getCondition());
+			Boolean known = constant(c);
+			if (known != null && !known) {
+				continue;
+			}
+			if (r.numberOfUpdates() == 0 && !r.actionExists() && removable(c)) {
+				continue;
+			}
+			Rule opt = new Rule(c);
+			for (int u = 0; u < r.numberOfUpdates(); u++) {
+				opt.addUpdate(update(r.getUpdate(u)));
+			}
+			if (r.actionExists()) {
+				opt.setAction(action(r.getAction()));
+			}
+			out.add(opt);
+			origins.add(r);
+			if (known != null && r.actionExists()) {
+				// Rules after one that always acts are never reached
+				break;
+			}
+		}
+		return new OptimizedProgram(out, origins.toArray(new Rule[origins.size()]), passIndependent(out));
+	}
+
+	/**
+	 * Returns true if no expression in {@code p} can read PASS or draw a random number
+	 */
+	private static boolean passIndependent(Program p) {
+		for (int i = 0; i < p.numberOfRules(); i++) {
+			Rule r = p.get(i);
+			if (!passIndependent(r.getCondition())) {
+				return false;
+			}
+			for (int u = 0; u < r.numberOfUpdates(); u++) {
+				Update up = r.getUpdate(u);
+				if (!passIndependent(up.getExprOne()) || !passIndependent(up.getExprTwo())) {
+					return false;
+				}
+			}
+			if (r.actionExists() && r.getAction().getExpr() != null && !passIndependent(r.getAction().getExpr())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean passIndependent(Condition c) {
+		if (c instanceof RelationCondition) {
+			RelationCondition r = (RelationCondition) c;
+			return passIndependent(r.getExprOne()) && passIndependent(r.getExprTwo());
+		}
+		if (c instanceof BinaryCondition) {
+			BinaryCondition b = (BinaryCondition) c;
+			return passIndependent(b.getConditionOne()) && passIndependent(b.getConditionTwo());
+		}
+		return false;
+	}
+
+	private static boolean passIndependent(Expr e) {
+		if (e instanceof NumExpr) {
+			return true;
+		}
+		if (e instanceof TermExpr) {
+			TermExpr t = (TermExpr) e;
+			return passIndependent(t.getExprOne()) && passIndependent(t.getExprTwo());
+		}
+		if (e instanceof FactorExpr) {
+			FactorExpr f = (FactorExpr) e;
+			return passIndependent(f.getExprOne()) && passIndependent(f.getExprTwo());
+		}
+		if (e instanceof UnaryExpr) {
+			return passIndependent(((UnaryExpr) e).getExpr());
+		}
+		if (e instanceof MemExpr) {
+			// A computed address might be that of PASS
+			MemExpr m = (MemExpr) e;
+			if (m.getMemSugar() != null) {
+				return m.getMemSugar() != MemExpr.MemSugar.PASS;
+			}
+			return m.getExpr() instanceof NumExpr && value(m.getExpr()) != MemExpr.MemSugar.PASS.getValue();
+		}
+		if (e instanceof SensorExpr) {
+			SensorExpr s = (SensorExpr) e;
+			return s.getSensorType() != SensorExpr.SensorType.RANDOM
+					&& (s.getSensorExpr() == null || passIndependent(s.getSensorExpr()));
+		}
+		return false;
+	}
+
+	private static Update update(Update u) {
+		if (!(u.getExprOne() instanceof MemExpr)) {
+			return u.clone();
+		}
+		return new UpdateImpl(mem((MemExpr) u.getExprOne()), expr(u.getExprTwo()));
+	}
+
+	private static Action action(Action a) {
+		if (a.getExpr() == null) {
+			return new ActionImpl(a.getActionType());
+		}
+		return new ActionImpl(a.getActionType(), expr(a.getExpr()));
+	}
+
+	/**
+	 * Returns an optimized copy of {@code c}. A condition whose value is known is
+	 * returned in the form {@link #constant(Condition)} recognizes.
+	 */
+	private static Condition condition(Condition c) {
+		if (c instanceof RelationCondition) {
+			return relation((RelationCondition) c);
+		}
+		if (c instanceof BinaryCondition) {
+			BinaryCondition b = (BinaryCondition) c;
+			Condition l = condition(b.getConditionOne());
+			Boolean left = constant(l);
+			boolean and = b.getOperator() == BinaryCondition.Operator.AND;
+			if (left != null) {
+				// The right side is not evaluated when the left decides the result
+				return left == and ? condition(b.getConditionTwo()) : truth(left);
+			}
+			Condition r = condition(b.getConditionTwo());
+			Boolean right = constant(r);
+			if (right != null) {
+				if (right == and) {
+					return l;
+				}
+				if (removable(l)) {
+					return truth(right);
+				}
+			}
+			else if (removable(l) && same(l, r)) {
+				return l;
+			}
+			return new BinaryCondition(l, b.getOperator(), r);
+		}
+		return c.clone();
+	}
+
+	private static Condition relation(RelationCondition c) {
+		Expr x = expr(c.getExprOne());
+		Expr y = expr(c.getExprTwo());
+		if (x instanceof NumExpr && y instanceof NumExpr) {
+			return truth(compare(c.getOperator(), value(x), value(y)));
+		}
+		if (removable(x) && same(x, y)) {
+			// Without RANDOM both sides see the same critter and have the same value
+			switch (c.getOperator()) {
+			case LE:
+			case EQ:
+			case GE:
+				return truth(true);
+			default:
+				return truth(false);
+			}
+		}
+		return new RelationCondition(x, c.getOperator(), y);
+	}
+
+	/**
+	 * Returns an optimized copy of {@code e}
+	 */
+	private static Expr expr(Expr e) {
+		if (e instanceof TermExpr) {
+			TermExpr t = (TermExpr) e;
+			Expr x = expr(t.getExprOne());
+			Expr y = expr(t.getExprTwo());
+			boolean plus = t.getOperator() == TermExpr.Operator.PLUS;
+			if (x instanceof NumExpr && y instanceof NumExpr) {
+				int a = value(x);
+				int b = value(y);
+				return new NumExpr(plus ? a + b : a - b);
+			}
+			if (isValue(y, 0)) {
+				return x;
+			}
+			if (plus && isValue(x, 0)) {
+				return y;
+			}
+			return new TermExpr(x, t.getOperator(), y);
+		}
+		if (e instanceof FactorExpr) {
+			return factor((FactorExpr) e);
+		}
+		if (e instanceof UnaryExpr) {
+			Expr x = expr(((UnaryExpr) e).getExpr());
+			if (x instanceof NumExpr) {
+				return new NumExpr(-value(x));
+			}
+			if (x instanceof UnaryExpr) {
+				return expr(((UnaryExpr) x).getExpr());
+			}
+			return new UnaryExpr(x);
+		}
+		if (e instanceof MemExpr) {
+			return mem((MemExpr) e);
+		}
+		if (e instanceof SensorExpr) {
+			SensorExpr s = (SensorExpr) e;
+			if (s.getSensorExpr() == null) {
+				return s.clone();
+			}
+			Expr x = expr(s.getSensorExpr());
+			if (s.getSensorType() == SensorExpr.SensorType.RANDOM && x instanceof NumExpr && value(x) < 2) {
+				// No number is drawn for a bound below 2
+				return new NumExpr(0);
+			}
+			return new SensorExpr(x, s.getSensorType());
+		}
+		return e.clone();
+	}
+
+	private static Expr factor(FactorExpr f) {
+		FactorExpr.Operator op = f.getOperator();
+		if (op != FactorExpr.Operator.MUL) {
+			// The divisor is evaluated first, and the dividend not at all if it is 0
+			Expr y = expr(f.getExprTwo());
+			if (isValue(y, 0)) {
+				return new NumExpr(0);
+			}
+			Expr x = expr(f.getExprOne());
+			if (x instanceof NumExpr && y instanceof NumExpr) {
+				int a = value(x);
+				int b = value(y);
+				return new NumExpr(op == FactorExpr.Operator.DIV ? a / b : a % b);
+			}
+			if (op == FactorExpr.Operator.DIV && isValue(y, 1)) {
+				return x;
+			}
+			if (op == FactorExpr.Operator.MOD && (isValue(y, 1) || isValue(y, -1)) && removable(x)) {
+				return new NumExpr(0);
+			}
+			return new FactorExpr(x, op, y);
+		}
+		Expr x = expr(f.getExprOne());
+		Expr y = expr(f.getExprTwo());
+		if (x instanceof NumExpr && y instanceof NumExpr) {
+			return new NumExpr(value(x) * value(y));
+		}
+		if (isValue(x, 1)) {
+			return y;
+		}
+		if (isValue(y, 1)) {
+			return x;
+		}
+		if ((isValue(x, 0) && removable(y)) || (isValue(y, 0) && removable(x))) {
+			return new NumExpr(0);
+		}
+		return new FactorExpr(x, op, y);
+	}
+
+	private static MemExpr mem(MemExpr m) {
+		if (m.getMemSugar() != null) {
+			return m.clone();
+		}
+		return new MemExpr(expr(m.getExpr()));
+	}
+
+	/**
+	 * Returns true if evaluating {@code e} can be skipped without the critter or its
+	 * random stream telling the difference
+	 */
+	private static boolean removable(Expr e) {
+		if (e instanceof NumExpr) {
+			return true;
+		}
+		if (e instanceof TermExpr) {
+			TermExpr t = (TermExpr) e;
+			return removable(t.getExprOne()) && removable(t.getExprTwo());
+		}
+		if (e instanceof FactorExpr) {
+			FactorExpr f = (FactorExpr) e;
+			return removable(f.getExprOne()) && removable(f.getExprTwo());
+		}
+		if (e instanceof UnaryExpr) {
+			return removable(((UnaryExpr) e).getExpr());
+		}
+		if (e instanceof MemExpr) {
+			// Reads from locations that may not exist can fail
+			MemExpr m = (MemExpr) e;
+			return m.getMemSugar() != null
+					|| (m.getExpr() instanceof NumExpr && value(m.getExpr()) >= 0 && value(m.getExpr()) < MIN_MEMSIZE);
+		}
+		if (e instanceof SensorExpr) {
+			SensorExpr s = (SensorExpr) e;
+			return s.getSensorType() != SensorExpr.SensorType.RANDOM
+					&& (s.getSensorExpr() == null || removable(s.getSensorExpr()));
+		}
+		return false;
+	}
+
+	private static boolean removable(Condition c) {
+		if (c instanceof RelationCondition) {
+			RelationCondition r = (RelationCondition) c;
+			return removable(r.getExprOne()) && removable(r.getExprTwo());
+		}
+		if (c instanceof BinaryCondition) {
+			BinaryCondition b = (BinaryCondition) c;
+			return removable(b.getConditionOne()) && removable(b.getConditionTwo());
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the value of {@code c} if it is a comparison of two numbers, null otherwise
+	 */
+	private static Boolean constant(Condition c) {
+		if (!(c instanceof RelationCondition)) {
+			return null;
+		}
+		RelationCondition r = (RelationCondition) c;
+		if (!(r.getExprOne() instanceof NumExpr) || !(r.getExprTwo() instanceof NumExpr)) {
+			return null;
+		}
+		return compare(r.getOperator(), value(r.getExprOne()), value(r.getExprTwo()));
+	}
+
+	private static boolean compare(RelationCondition.Operator op, int a, int b) {
+		switch (op) {
+		case LT:
+			return a < b;
+		case LE:
+			return a <= b;
+		case EQ:
+			return a == b;
+		case GE:
+			return a >= b;
+		case GT:
+			return a > b;
+		case NE:
+			return a != b;
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * The condition that is always {@code b}
+	 */
+	private static Condition truth(boolean b) {
+		return new RelationCondition(new NumExpr(0),
+				b ? RelationCondition.Operator.EQ : RelationCondition.Operator.NE, new NumExpr(0));
+	}
+
+	private static boolean same(Condition a, Condition b) {
+		return a.toString().equals(b.toString());
+	}
+
+	private static boolean same(Expr a, Expr b) {
+		return a.toString().equals(b.toString());
+	}
+
+	private static boolean isValue(Expr e, int v) {
+		return e instanceof NumExpr && value(e) == v;
+	}
+
+	private static int value(Expr e) {
+		return ((NumExpr) e).getValue();
+	}
+}
@@ -0,0 +1,80 @@
+package interpret;
+
+import ast.Program;
+import ast.ProgramImpl;
+import console.Critter;
+
+/**
+ * Runs critter programs in the cheapest tier that has paid off for them. A program starts
+ * in {@link InterpreterImpl}; after {@link #VM_THRESHOLD} runs it is compiled to
+ * {@link Bytecode} for the {@link VirtualMachine}, and after {@link #JIT_THRESHOLD} runs it is
+ * handed to {@link JitCompiler} in the background and runs as a JVM class once that is done.
+ * Run counts belong to the program, so critters sharing a program warm it up together.
+ * Every tier executes the program as rewritten by {@link ProgramOptimizer}. A changed
+ * program starts over in the interpreter.
+ */
+public class TieredExecutor {
+	/**
+	 * Number of runs after which a program is compiled to bytecode
+	 */
+	public static final int VM_THRESHOLD = 8;
+	/**
+	 * Number of runs after which a program is compiled to a JVM class
+	 */
+	public static final int JIT_THRESHOLD = 10000;
+
+	private final Critter critter;
+	private final boolean deferActions;
+	private InterpreterImpl interpreter;
+	private VirtualMachine vm;
+
+	/**
+	 * Creates an executor for {@code critter}. If {@code deferActions} is true, the
+	 * action a rule chooses is handed to {@link Critter#planAction} instead of being
+	 * carried out.
+	 */
+	public TieredExecutor(Critter critter, boolean deferActions) {
+		this.critter = critter;
+		this.deferActions = deferActions;
+	}
+
+	/**
+	 * Returns true if every pass of a turn over the same memory runs {@code p} the same
+	 * way, as described by {@link OptimizedProgram#isPassIndependent()}
+	 */
+	public boolean isPassIndependent(Program p) {
+		return p instanceof ProgramImpl && ((ProgramImpl) p).getProfile().getOptimized().isPassIndependent();
+	}
+
+	/**
+	 * Executes program {@code p} once, like {@link Interpreter#interpretProgram(Program)}.
+	 * @return true if a rule chose an action
+	 */
+	public boolean interpretProgram(Program p) {
+		if (interpreter == null) {
+			interpreter = new InterpreterImpl(critter, deferActions);
+		}
+		if (p instanceof ProgramImpl) {
+			ExecutionProfile profile = ((ProgramImpl) p).getProfile();
+			CompiledRules jit = profile.getJitCode();
+			if (jit != null) {
+				return jit.run(critter, deferActions, profile.getRules());
+			}
+			int runs = profile.countRun();
+			if (runs >= JIT_THRESHOLD) {
+				profile.requestJit();
+			}
+			if (runs >= VM_THRESHOLD) {
+				Bytecode b = profile.getBytecode();
+				if (b != null) {
+					if (vm == null) {
+						vm = new VirtualMachine(critter, deferActions);
+					}
+					return vm.run(b);
+				}
+			}
+			return interpreter.interpretProgram(profile.getOptimized());
+		}
+		return interpreter.interpretProgram(p);
+	}
+}
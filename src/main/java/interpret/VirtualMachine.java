@@ -0,0 +1,196 @@
+package interpret;
+
+import java.util.SplittableRandom;
+
+import ast.ActionImpl.Actions;
+import ast.Program;
+import ast.ProgramImpl;
+import console.Critter;
+
+/**
+ * Runs the compiled form of a critter program for one critter. Produces exactly the
+ * effects of {@link InterpreterImpl}, in the same order; programs the compiler does not
+ * handle are handed to an {@link InterpreterImpl}.
+ */
+public class VirtualMachine {
+	private static final Actions[] ACTIONS = Actions.values();
+
+	private final Critter critter;
+	/**
+	 * True if actions are only recorded on the critter instead of carried out
+	 */
+	private final boolean deferActions;
+	/**
+	 * Stream that RANDOM draws from
+	 */
+	private final SplittableRandom rand;
+	/**
+	 * The operand stack
+	 */
+	private int[] stack = new int[16];
+	/**
+	 * Interpreter for programs that could not be compiled, created when first needed
+	 */
+	private InterpreterImpl fallback;
+
+	/**
+	 * Creates a virtual machine for {@code critter}. If {@code deferActions} is true, the
+	 * action a rule chooses is handed to {@link Critter#planAction} instead of being
+	 * carried out.
+	 */
+	public VirtualMachine(Critter critter, boolean deferActions) {
+		this.critter = critter;
+		this.deferActions = deferActions;
+		this.rand = critter.getRandom();
+	}
+
+	/**
+	 * Executes program {@code p} once, like {@link Interpreter#interpretProgram(Program)}.
+	 * @return true if a rule chose an action
+	 */
+	public boolean interpretProgram(Program p) {
+		Bytecode b = p instanceof ProgramImpl ? ((ProgramImpl) p).getBytecode() : null;
+		if (b == null) {
+			if (fallback == null) {
+				fallback = new InterpreterImpl(critter, deferActions);
+			}
+			return fallback.interpretProgram(p);
+		}
+		return run(b);
+	}
+
+	/**
+	 * Executes {@code b} once.
+	 * @return true if a rule chose an action
+	 */
+	public boolean run(Bytecode b) {
+		if (stack.length < b.maxStack) {
+			stack = new int[b.maxStack];
+		}
+		int[] code = b.code;
+		int[] s = stack;
+		int sp = 0;
+		int pc = 0;
+		int l, r;
+		while (true) {
+			switch (code[pc]) {
+			case Bytecode.PUSH:
+				s[sp++] = code[pc + 1];
+				pc += 2;
+				break;
+			case Bytecode.LOADM:
+				s[sp++] = critter.getMemoryValue(code[pc + 1]);
+				pc += 2;
+				break;
+			case Bytecode.LOAD:
+				s[sp - 1] = critter.getMemoryValue(s[sp - 1]);
+				pc++;
+				break;
+			case Bytecode.ADD:
+				r = s[--sp];
+				s[sp - 1] += r;
+				pc++;
+				break;
+			case Bytecode.SUB:
+				r = s[--sp];
+				s[sp - 1] -= r;
+				pc++;
+				break;
+			case Bytecode.MUL:
+				r = s[--sp];
+				s[sp - 1] *= r;
+				pc++;
+				break;
+			case Bytecode.DIV:
+				l = s[--sp];
+				s[sp - 1] = l / s[sp - 1];
+				pc++;
+				break;
+			case Bytecode.MOD:
+				l = s[--sp];
+				s[sp - 1] = l % s[sp - 1];
+				pc++;
+				break;
+			case Bytecode.NEG:
+				s[sp - 1] = -s[sp - 1];
+				pc++;
+				break;
+			case Bytecode.JZK:
+				pc = s[sp - 1] == 0 ? code[pc + 1] : pc + 2;
+				break;
+			case Bytecode.SMELL:
+				s[sp++] = critter.smell();
+				pc++;
+				break;
+			case Bytecode.RANDOM:
+				s[sp - 1] = s[sp - 1] < 2 ? 0 : rand.nextInt(s[sp - 1]);
+				pc++;
+				break;
+			case Bytecode.AHEAD:
+				s[sp - 1] = critter.ahead(s[sp - 1]);
+				pc++;
+				break;
+			case Bytecode.NEARBY:
+				s[sp - 1] = critter.nearby(s[sp - 1]);
+				pc++;
+				break;
+			case Bytecode.JREL:
+				r = s[--sp];
+				l = s[--sp];
+				pc = holds(code[pc + 1], l, r) ? code[pc + 2] : pc + 3;
+				break;
+			case Bytecode.STOREM:
+				critter.setMemoryValue(code[pc + 1], s[--sp]);
+				pc += 2;
+				break;
+			case Bytecode.STORE:
+				r = s[--sp];
+				l = s[--sp];
+				critter.setMemoryValue(l, r);
+				pc++;
+				break;
+			case Bytecode.ACT:
+				act(ACTIONS[code[pc + 1]], 0);
+				critter.setLastRule(b.rules[code[pc + 2]]);
+				return true;
+			case Bytecode.ACTV:
+				act(ACTIONS[code[pc + 1]], s[--sp]);
+				critter.setLastRule(b.rules[code[pc + 2]]);
+				return true;
+			case Bytecode.END:
+				return false;
+			default:
+				throw new IllegalStateException("Unknown opcode " + code[pc]);
+			}
+		}
+	}
+
+	private void act(Actions action, int value) {
+		if (deferActions) {
+			critter.planAction(action, value);
+		}
+		else {
+			critter.performAction(action, value);
+		}
+	}
+
+	/**
+	 * Returns true if {@code l op r}, {@code op} being a {@code RelationCondition.Operator} ordinal
+	 */
+	private static boolean holds(int op, int l, int r) {
+		switch (op) {
+		case 0:
+			return l < r;
+		case 1:
+			return l <= r;
+		case 2:
+			return l == r;
+		case 3:
+			return l >= r;
+		case 4:
+			return l > r;
+		default:
+			return l != r;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package main;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import ast.Program;
+import parse.Parser;
+import parse.ParserFactory;
+
+/**
+ * Times the recursive parser against the bounded parser on generated programs that
+ * nest deeply, the way evolved programs do.
+ */
+public class ParserBenchmarkApp {
+
+	/**
+	 * Limits of the bounded parser, high enough for every generated program
+	 */
+	private static final int MAX_DEPTH = 1000000;
+	private static final int MAX_SIZE = 10000000;
+
+	public static void main(String[] args) {
+		int[] depths = {100, 1000, 10000, 100000};
+		if (args.length > 0) {
+			depths = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				depths[i] = ParseAndMutateApp.parsePositive(args[i]);
+			}
+		}
+		// The parsers report syntax errors on the console
+		PrintStream console = System.out;
+		PrintStream silent = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		});
+		console.printf("%-12s %8s %14s %14s%n", "program", "depth", "recursive", "bounded");
+		for (int depth : depths) {
+			String[][] programs = {
+				{"negations", nest("-(", "1", ")", depth)},
+				{"memory", nest("mem[", "1", "]", depth)},
+				{"sensors", nest("ahead[", "1", "]", depth)},
+				{"parentheses", nest("(", "1", ")", depth)},
+				{"sums", chain("1", " + ", depth)},
+				{"braces", nest("{", "1 = 1", "}", depth) + " --> wait;\n"},
+				{"conditions", chain("1 < 2", " and ", depth) + " --> wait;\n"},
+			};
+			for (String[] p : programs) {
+				String text = p[1].endsWith(";\n") ? p[1] : "1 = " + p[1] + " --> wait;\n";
+				System.setOut(silent);
+				System.setErr(silent);
+				String recursive = time(ParserFactory.getParser(), text);
+				String bounded = time(ParserFactory.getBoundedParser(MAX_DEPTH, MAX_SIZE), text);
+				System.setOut(console);
+				System.setErr(console);
+				console.printf("%-12s %8d %14s %14s%n", p[0], depth, recursive, bounded);
+			}
+		}
+	}
+
+	/**
+	 * Returns the best time of a few parses of {@code text}, or why it failed
+	 */
+	private static String time(Parser parser, String text) {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			long start = System.nanoTime();
+			Program p;
+			try {
+				p = parser.parse(text);
+			} catch (StackOverflowError e) {
+				return "stack overflow";
+			}
+			best = Math.min(best, System.nanoTime() - start);
+			if (p == null) {
+				return "syntax error";
+			}
+		}
+		return String.format("%.3f ms", best / 1e6);
+	}
+
+	private static String nest(String open, String inner, String close, int depth) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			sb.append(open);
+		}
+		sb.append(inner);
+		for (int i = 0; i < depth; i++) {
+			sb.append(close);
+		}
+		return sb.toString();
+	}
+
+	private static String chain(String item, String op, int length) {
+		StringBuilder sb = new StringBuilder(item);
+		for (int i = 1; i < length; i++) {
+			sb.append(op).append(item);
+		}
+		return sb.toString();
+	}
+}
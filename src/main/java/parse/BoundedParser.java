@@ -0,0 +1,392 @@
+package parse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.Action;
+import ast.ActionImpl;
+import ast.BinaryCondition;
+import ast.Condition;
+import ast.Expr;
+import ast.FactorExpr;
+import ast.MemExpr;
+import ast.NumExpr;
+import ast.Program;
+import ast.ProgramImpl;
+import ast.RelationCondition;
+import ast.Rule;
+import ast.SensorExpr;
+import ast.TermExpr;
+import ast.UnaryExpr;
+import ast.Update;
+import ast.UpdateImpl;
+import exceptions.SyntaxError;
+
+/**
+ * A parser that builds the same AST as {@link ParserImpl} without recursing into nested
+ * conditions and expressions. Operands and pending operators are kept on explicit stacks,
+ * so deeply nested programs cannot overflow the call stack, and every token and node is
+ * handled a constant number of times.
+ * <p>
+ * A program is rejected as a syntax error if its AST would be deeper than
+ * {@code maxDepth}, if brackets, parentheses or braces nest deeper than that, or if it
+ * would have more than {@code maxSize} nodes.
+ */
+class BoundedParser implements Parser {
+	private final int maxDepth;
+	private final int maxSize;
+
+	BoundedParser(int maxDepth, int maxSize) {
+		this.maxDepth = maxDepth;
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public Program parse(Reader r) {
+		return parse(new Tokenizer(r));
+	}
+
+	@Override
+	public Program parse(CharSequence text) {
+		return parse(new FastTokenizer(text));
+	}
+
+	@Override
+	public Program parse(Path file) throws IOException {
+		return parse(ParserImpl.read(file));
+	}
+
+	private Program parse(Tokenizer t) {
+		try {
+			return new Run(t).parseProgram();
+		} catch (SyntaxError e) {
+			e.printStackTrace();
+			System.out.println("Invalid Syntax in the Critter Program");
+		}
+		return null;
+	}
+
+	/**
+	 * The parse of one program
+	 */
+	private class Run {
+		private final Tokenizer t;
+		/**
+		 * The number of nodes built so far
+		 */
+		private int size;
+		/**
+		 * The depth of the subtree returned by the last parseX method
+		 */
+		private int depth;
+
+		Run(Tokenizer t) {
+			this.t = t;
+		}
+
+		ProgramImpl parseProgram() throws SyntaxError {
+			ProgramImpl p = new ProgramImpl();
+			int d = 0;
+			while (t.hasNext()) {
+				p.add(parseRule());
+				d = Math.max(d, depth);
+			}
+			built(d + 1);
+			return p;
+		}
+
+		Rule parseRule() throws SyntaxError {
+			Rule r = new Rule(parseCondition());
+			int d = depth;
+			if (!t.peek().getType().equals(TokenType.ARR)) {
+				throw new SyntaxError();
+			}
+			ParserImpl.consume(t, TokenType.ARR);
+			while (t.hasNext() && !t.peek().getType().equals(TokenType.SEMICOLON)) {
+				if (t.peek().getType().equals(TokenType.MEM) || t.peek().getType().category().equals(TokenCategory.MEMSUGAR)) {
+					r.addUpdate(parseUpdate());
+				}
+				else if (t.peek().getType().category().equals(TokenCategory.ACTION)) {
+					if (r.getAction() != null) {
+						throw new SyntaxError();
+					}
+					r.setAction(parseAction());
+				}
+				else {
+					throw new SyntaxError();
+				}
+				d = Math.max(d, depth);
+			}
+			ParserImpl.consume(t, TokenType.SEMICOLON);
+			built(d + 1);
+			return r;
+		}
+
+		Update parseUpdate() throws SyntaxError {
+			Expr x = parseExpression();
+			int d = depth;
+			ParserImpl.consume(t, TokenType.ASSIGN);
+			Expr y = parseExpression();
+			built(Math.max(d, depth) + 1);
+			return new UpdateImpl(x, y);
+		}
+
+		Action parseAction() throws SyntaxError {
+			TokenType type = t.peek().getType();
+			ParserImpl.consume(t, type);
+			ActionImpl.Actions action = ActionImpl.Actions.valueOf(type.name());
+			if (type == TokenType.SERVE || type == TokenType.TAG) {
+				ParserImpl.consume(t, TokenType.LBRACKET);
+				Expr e = parseExpression();
+				ParserImpl.consume(t, TokenType.RBRACKET);
+				built(depth + 1);
+				return new ActionImpl(action, e);
+			}
+			built(1);
+			return new ActionImpl(action);
+		}
+
+		/**
+		 * Parses a chain of relations and braced conditions joined by {@code and} and
+		 * {@code or}. Like {@link ParserImpl#parseCondition}, the chain associates to the
+		 * right, with no precedence between the operators.
+		 */
+		Condition parseCondition() throws SyntaxError {
+			ArrayDeque<ConditionFrame> frames = new ArrayDeque<ConditionFrame>();
+			ConditionFrame f = new ConditionFrame();
+			while (true) {
+				while (t.peek().getType().equals(TokenType.LBRACE)) {
+					ParserImpl.consume(t, TokenType.LBRACE);
+					frames.push(f);
+					nested(frames.size());
+					f = new ConditionFrame();
+				}
+				Condition c = parseRelation();
+				int d = depth;
+				// Close every chain that ends after c
+				while (true) {
+					TokenType type = t.peek().getType();
+					if (type.equals(TokenType.AND) || type.equals(TokenType.OR)) {
+						ParserImpl.consume(t, type);
+						f.add(c, d, BinaryCondition.Operator.valueOf(type.name()));
+						break;
+					}
+					for (int i = f.conditions.size() - 1; i >= 0; i--) {
+						d = Math.max(f.depths.get(i), d) + 1;
+						built(d);
+						c = new BinaryCondition(f.conditions.get(i), f.ops.get(i), c);
+					}
+					if (frames.isEmpty()) {
+						depth = d;
+						return c;
+					}
+					ParserImpl.consume(t, TokenType.RBRACE);
+					f = frames.pop();
+				}
+			}
+		}
+
+		Condition parseRelation() throws SyntaxError {
+			Expr x = parseExpression();
+			int d = depth;
+			TokenType rel = t.peek().getType();
+			if (!rel.category().equals(TokenCategory.RELOP)) {
+				throw new SyntaxError();
+			}
+			ParserImpl.consume(t, rel);
+			Expr y = parseExpression();
+			built(Math.max(d, depth) + 1);
+			return new RelationCondition(x, RelationCondition.Operator.valueOf(rel.name()), y);
+		}
+
+		/**
+		 * Parses an expression as {@link ParserImpl#parseExpression} does, keeping the
+		 * expressions inside brackets and parentheses that are still open on a stack
+		 */
+		Expr parseExpression() throws SyntaxError {
+			ArrayDeque<ExprFrame> frames = new ArrayDeque<ExprFrame>();
+			ExprFrame f = new ExprFrame(null);
+			while (true) {
+				// Parse a factor, or open the expression it starts with
+				Expr e;
+				TokenType type = t.peek().getType();
+				if (t.peek().isNum()) {
+					e = new NumExpr(t.next().toNumToken().getValue());
+				}
+				else if (type.equals(TokenType.MINUS)) {
+					ParserImpl.consume(t, TokenType.MINUS);
+					if (t.peek().isNum()) {
+						e = new NumExpr(0 - t.next().toNumToken().getValue());
+					}
+					else {
+						ParserImpl.consume(t, TokenType.LPAREN);
+						f = open(frames, f, TokenType.MINUS);
+						continue;
+					}
+				}
+				else if (type.equals(TokenType.MEM)) {
+					ParserImpl.consume(t, TokenType.MEM);
+					ParserImpl.consume(t, TokenType.LBRACKET);
+					f = open(frames, f, TokenType.MEM);
+					continue;
+				}
+				else if (type.category().equals(TokenCategory.MEMSUGAR)) {
+					ParserImpl.consume(t, type);
+					e = new MemExpr(MemExpr.MemSugar.valueOf(type.name().substring("ABV_".length())));
+				}
+				else if (type.equals(TokenType.LPAREN)) {
+					ParserImpl.consume(t, TokenType.LPAREN);
+					f = open(frames, f, TokenType.LPAREN);
+					continue;
+				}
+				else if (type.category().equals(TokenCategory.SENSOR)) {
+					ParserImpl.consume(t, type);
+					if (type.equals(TokenType.SMELL)) {
+						e = new SensorExpr(SensorExpr.SensorType.SMELL);
+						if (t.peek().getType().equals(TokenType.RBRACKET)) {
+							ParserImpl.consume(t, TokenType.RBRACKET);
+						}
+					}
+					else {
+						if (t.peek().getType().equals(TokenType.LBRACKET)) {
+							ParserImpl.consume(t, TokenType.LBRACKET);
+						}
+						f = open(frames, f, type);
+						continue;
+					}
+				}
+				else {
+					throw new SyntaxError();
+				}
+				int d = 1;
+				built(d);
+				// Fold e into the open expressions, closing every one that ends after it
+				while (true) {
+					if (f.mul != null) {
+						d = Math.max(f.productDepth, d) + 1;
+						built(d);
+						e = new FactorExpr(f.product, FactorExpr.Operator.valueOf(f.mul.name()), e);
+					}
+					type = t.peek().getType();
+					if (t.peek().isMulOp()) {
+						ParserImpl.consume(t, type);
+						f.setProduct(e, d, type);
+						break;
+					}
+					if (f.add != null) {
+						d = Math.max(f.sumDepth, d) + 1;
+						built(d);
+						e = new TermExpr(f.sum, TermExpr.Operator.valueOf(f.add.name()), e);
+					}
+					if (type.category().equals(TokenCategory.ADDOP)) {
+						ParserImpl.consume(t, type);
+						f.setSum(e, d, type);
+						break;
+					}
+					if (f.opener == null) {
+						depth = d;
+						return e;
+					}
+					if (f.opener.equals(TokenType.LPAREN)) {
+						ParserImpl.consume(t, TokenType.RPAREN);
+					}
+					else if (f.opener.equals(TokenType.MINUS)) {
+						ParserImpl.consume(t, TokenType.RPAREN);
+						e = new UnaryExpr(e);
+						built(++d);
+					}
+					else if (f.opener.equals(TokenType.MEM)) {
+						ParserImpl.consume(t, TokenType.RBRACKET);
+						e = new MemExpr(e);
+						built(++d);
+					}
+					else {
+						e = new SensorExpr(e, SensorExpr.SensorType.valueOf(f.opener.name()));
+						built(++d);
+						if (t.peek().getType().equals(TokenType.RBRACKET)) {
+							ParserImpl.consume(t, TokenType.RBRACKET);
+						}
+					}
+					f = frames.pop();
+				}
+			}
+		}
+
+		private ExprFrame open(ArrayDeque<ExprFrame> frames, ExprFrame f, TokenType opener) throws SyntaxError {
+			frames.push(f);
+			nested(frames.size());
+			return new ExprFrame(opener);
+		}
+
+		/**
+		 * Counts a node whose subtree is {@code d} deep against the limits
+		 */
+		private void built(int d) throws SyntaxError {
+			if (++size > maxSize || d > maxDepth) {
+				throw new SyntaxError();
+			}
+		}
+
+		private void nested(int n) throws SyntaxError {
+			if (n > maxDepth) {
+				throw new SyntaxError();
+			}
+		}
+	}
+
+	/**
+	 * A chain of conditions whose last condition has not been parsed yet. Each condition
+	 * is followed by the operator in {@code ops} at the same index.
+	 */
+	private static class ConditionFrame {
+		final List<Condition> conditions = new ArrayList<Condition>();
+		final List<Integer> depths = new ArrayList<Integer>();
+		final List<BinaryCondition.Operator> ops = new ArrayList<BinaryCondition.Operator>();
+
+		void add(Condition c, int depth, BinaryCondition.Operator op) {
+			conditions.add(c);
+			depths.add(depth);
+			ops.add(op);
+		}
+	}
+
+	/**
+	 * An expression that has not been parsed to its end. {@code sum} is the expression
+	 * to the left of the pending additive operator {@code add}, and {@code product} the
+	 * term to the left of the pending multiplicative operator {@code mul}.
+	 */
+	private static class ExprFrame {
+		/**
+		 * The token that opened the expression: {@code MINUS} for a negation, {@code MEM},
+		 * {@code LPAREN}, a sensor, or null for an expression that is not nested
+		 */
+		final TokenType opener;
+		Expr sum;
+		int sumDepth;
+		TokenType add;
+		Expr product;
+		int productDepth;
+		TokenType mul;
+
+		ExprFrame(TokenType opener) {
+			this.opener = opener;
+		}
+
+		void setSum(Expr e, int depth, TokenType op) {
+			sum = e;
+			sumDepth = depth;
+			add = op;
+			mul = null;
+		}
+
+		void setProduct(Expr e, int depth, TokenType op) {
+			product = e;
+			productDepth = depth;
+			mul = op;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package parse;
+
+import static parse.TokenType.ARR;
+import static parse.TokenType.ASSIGN;
+import static parse.TokenType.DIV;
+import static parse.TokenType.EQ;
+import static parse.TokenType.GE;
+import static parse.TokenType.GT;
+import static parse.TokenType.LBRACE;
+import static parse.TokenType.LBRACKET;
+import static parse.TokenType.LE;
+import static parse.TokenType.LPAREN;
+import static parse.TokenType.LT;
+import static parse.TokenType.MINUS;
+import static parse.TokenType.MUL;
+import static parse.TokenType.NE;
+import static parse.TokenType.PLUS;
+import static parse.TokenType.RBRACE;
+import static parse.TokenType.RBRACKET;
+import static parse.TokenType.RPAREN;
+import static parse.TokenType.SEMICOLON;
+
+import parse.Token.EOFToken;
+import parse.Token.ErrorToken;
+import parse.Token.NumToken;
+
+/**
+ * A Tokenizer that lexes a program held in memory, such as a {@code CharBuffer} over a
+ * mapped file or a request body. It indexes into its input instead of copying it into a
+ * buffer: keywords are looked up in a trie as their letters are read, numbers are
+ * accumulated as they are read, and only error and EOF tokens copy their text.
+ * <p>
+ * It produces the same tokens, with the same line numbers, as {@link Tokenizer} does
+ * for the same text.
+ */
+class FastTokenizer extends Tokenizer {
+
+    /**
+     * The keywords made of letters only, by letter
+     */
+    private static final Trie KEYWORDS = new Trie();
+    static {
+        for (TokenType t : TokenType.values()) {
+            String rep = t.stringRep;
+            boolean letters = true;
+            for (int i = 0; i < rep.length(); i++) {
+                letters &= Character.isLetter(rep.charAt(i)) && rep.charAt(i) < Trie.WIDTH;
+            }
+            if (letters) KEYWORDS.add(rep, t);
+        }
+    }
+
+    private final CharSequence in;
+    private final int end;
+    /**
+     * The index of the next character to lex
+     */
+    private int pos;
+    private int lineNo = 1;
+    /**
+     * Same as in {@link Tokenizer}
+     */
+    private boolean tokenReady = false;
+    private Token curTok =
+            new ErrorToken("Tokenizer has not yet begun reading", -1);
+    private boolean atEOF = false;
+
+    /**
+     * Create a Tokenizer that lexes {@code in}, which must not change while it is
+     * being lexed
+     */
+    FastTokenizer(CharSequence in) {
+        this.in = in;
+        end = in.length();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!tokenReady) {
+            lexOneToken();
+            if (atEOF && curTok instanceof EOFToken) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Token next() {
+        Token tok = peek();
+        tokenReady = false;
+        return tok;
+    }
+
+    @Override
+    public Token peek() {
+        if (!tokenReady && !atEOF) lexOneToken();
+        return curTok;
+    }
+
+    @Override
+    void close() {
+    }
+
+    /**
+     * Lex one token, which may be an error token, or an EOF token if the input ends
+     * first. Mirrors {@code Tokenizer.lexOneToken}.
+     */
+    private void lexOneToken() {
+        // Skip whitespace, which an EOF token reports
+        int start = pos;
+        char c;
+        while (true) {
+            if (pos == end) {
+                encounteredEOF(start);
+                return;
+            }
+            c = in.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') break;
+            if (c == '\n') lineNo++;
+            pos++;
+        }
+        start = pos++;
+
+        switch (c) {
+        case '[':
+            setNextToken(LBRACKET);
+            break;
+        case ']':
+            setNextToken(RBRACKET);
+            break;
+        case '(':
+            setNextToken(LPAREN);
+            break;
+        case ')':
+            setNextToken(RPAREN);
+            break;
+        case '{':
+            setNextToken(LBRACE);
+            break;
+        case '}':
+            setNextToken(RBRACE);
+            break;
+        case ';':
+            setNextToken(SEMICOLON);
+            break;
+        case '=':
+            setNextToken(EQ);
+            break;
+        case '+':
+            setNextToken(PLUS);
+            break;
+        case '*':
+            setNextToken(MUL);
+            break;
+        case '/':
+            if (pos < end && in.charAt(pos) == '/') {
+                // rest-of-line comment, up to the newline, which is lexed as whitespace
+                while (true) {
+                    if (pos == end) {
+                        encounteredEOF(start);
+                        return;
+                    }
+                    if (in.charAt(pos) == '\n') break;
+                    pos++;
+                }
+                lexOneToken();
+            }
+            else setNextToken(DIV);
+            break;
+        case '<':
+            setNextToken(consumeIf('=') ? LE : LT);
+            break;
+        case '>':
+            setNextToken(consumeIf('=') ? GE : GT);
+            break;
+        case '-':
+            lexDash(start);
+            break;
+        case ':':
+            if (consume('=', start)) setNextToken(ASSIGN);
+            break;
+        case '!':
+            if (consume('=', start)) setNextToken(NE);
+            break;
+        default:
+            if (Character.isLetter(c))
+                lexIdentifier(start, c);
+            else if (Character.isDigit(c))
+                lexNum(start, c);
+            else unexpected(start);
+        }
+    }
+
+    private void lexDash(int start) {
+        if (pos == end) {
+            // Tokenizer reads past a final dash, reaching EOF
+            encounteredEOF(start);
+        }
+        else if (in.charAt(pos) == '-' && pos + 1 < end && in.charAt(pos + 1) == '>') {
+            pos += 2;
+            setNextToken(ARR);
+        }
+        else setNextToken(MINUS);
+    }
+
+    private void lexIdentifier(int start, char first) {
+        Trie t = KEYWORDS.next(first);
+        while (pos < end && Character.isLetter(in.charAt(pos))) {
+            if (t != null) t = t.next(in.charAt(pos));
+            pos++;
+        }
+        if (t != null && t.type != null) setNextToken(t.type);
+        else unexpected(start);
+    }
+
+    private void lexNum(int start, char first) {
+        long val = Character.digit(first, 10);
+        while (pos < end && Character.isDigit(in.charAt(pos))) {
+            if (val <= Integer.MAX_VALUE) val = val * 10 + Character.digit(in.charAt(pos), 10);
+            pos++;
+        }
+        if (val > Integer.MAX_VALUE) {
+            unexpected(start);
+            // Tokenizer drops the character after a number too large to parse
+            if (pos < end) pos++;
+            return;
+        }
+        curTok = new NumToken((int) val, lineNo);
+        tokenReady = true;
+    }
+
+    /**
+     * Consume the next character if it is {@code expected}
+     */
+    private boolean consumeIf(char expected) {
+        if (pos < end && in.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume the next character, making the token that started at {@code start} an
+     * error unless it is {@code expected}
+     */
+    private boolean consume(char expected, int start) {
+        if (pos == end) {
+            encounteredEOF(start);
+            return false;
+        }
+        if (in.charAt(pos++) != expected) {
+            unexpected(start);
+            return false;
+        }
+        return true;
+    }
+
+    private void setNextToken(TokenType tokenType) {
+        curTok = new Token(tokenType, lineNo);
+        tokenReady = true;
+    }
+
+    /**
+     * Make the text from {@code start} an error token
+     */
+    private void unexpected(int start) {
+        curTok = new ErrorToken(in.subSequence(start, pos).toString(), lineNo);
+        tokenReady = true;
+    }
+
+    private void encounteredEOF(int start) {
+        curTok = new EOFToken(in.subSequence(start, end).toString(), lineNo);
+        pos = end;
+        atEOF = true;
+        tokenReady = true;
+    }
+
+    /**
+     * A node of a trie of keywords over ASCII letters
+     */
+    private static class Trie {
+        static final int WIDTH = 128;
+        private final Trie[] next = new Trie[WIDTH];
+        /**
+         * The keyword spelled by the path to this node, if any
+         */
+        private TokenType type;
+
+        void add(String rep, TokenType t) {
+            Trie n = this;
+            for (int i = 0; i < rep.length(); i++) {
+                char c = rep.charAt(i);
+                if (n.next[c] == null) n.next[c] = new Trie();
+                n = n.next[c];
+            }
+            n.type = t;
+        }
+
+        Trie next(char c) {
+            return c < WIDTH ? next[c] : null;
+        }
+    }
+}
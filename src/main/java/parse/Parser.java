@@ -1,6 +1,8 @@
 package parse;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Path;
 
 import ast.Program;
 
@@ -19,4 +21,28 @@ public interface Parser {
     *         error.
     */
    Program parse(Reader r);
+
+   /**
+    * Parses a program held in memory, such as a {@code CharBuffer}, without
+    * copying it.
+    * 
+    * @param text
+    *           The program, which must not change while it is parsed
+    * @return The parsed program, or null if the program contains a syntax
+    *         error.
+    */
+   Program parse(CharSequence text);
+
+   /**
+    * Parses the program in a file, which is mapped into memory rather than
+    * read through a stream.
+    * 
+    * @param file
+    *           The path of the file, which is encoded in UTF-8
+    * @return The parsed program, or null if the program contains a syntax
+    *         error.
+    * @throws IOException
+    *            if the file cannot be read
+    */
+   Program parse(Path file) throws IOException;
 }
@@ -5,6 +5,19 @@ package parse;
  */
 public class ParserFactory {
 
+   /**
+    * The greatest depth of programs parsed by {@link #getBoundedParser()}.
+    * Printing, sizing, copying and running a program recurse through its AST,
+    * and on a thread with the default stack size they handle programs about
+    * twice this deep. The rest is left for programs to grow by mutation.
+    */
+   public static final int MAX_DEPTH = 500;
+
+   /**
+    * The greatest number of nodes in programs parsed by {@link #getBoundedParser()}
+    */
+   public static final int MAX_SIZE = 100000;
+
    /**
     * Return a {@code Parser} that can parse critter programs.
     * 
@@ -13,4 +26,33 @@ public class ParserFactory {
    public static Parser getParser() {
       return new ParserImpl();
    }
+
+   /**
+    * Return a {@code Parser} that parses critter programs without recursion,
+    * so that programs nested arbitrarily deep can be parsed safely. It builds
+    * the same programs as {@link #getParser()}, but rejects programs beyond
+    * the given limits as if they had a syntax error.
+    * 
+    * @param maxDepth
+    *           The greatest depth of the AST, and of brackets, parentheses
+    *           and braces nested in the program text
+    * @param maxSize
+    *           The greatest number of nodes in the AST
+    * @return A critter program parser
+    */
+   public static Parser getBoundedParser(int maxDepth, int maxSize) {
+      return new BoundedParser(maxDepth, maxSize);
+   }
+
+   /**
+    * Return a {@code Parser} like {@link #getBoundedParser(int, int)} with the
+    * limits {@link #MAX_DEPTH} and {@link #MAX_SIZE}, for parsing programs sent
+    * by clients or loaded from files so that the programs it accepts can be
+    * run safely.
+    * 
+    * @return A critter program parser
+    */
+   public static Parser getBoundedParser() {
+      return getBoundedParser(MAX_DEPTH, MAX_SIZE);
+   }
 }
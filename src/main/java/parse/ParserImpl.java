@@ -1,6 +1,13 @@
 package parse;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List; 
 import ast.Action;
@@ -27,7 +34,30 @@ class ParserImpl implements Parser {
 	
 	@Override
 	public Program parse(Reader r) {
-		Tokenizer t = new Tokenizer(r); 
+		return parse(new Tokenizer(r));
+	}
+	
+	@Override
+	public Program parse(CharSequence text) {
+		return parse(new FastTokenizer(text));
+	}
+	
+	@Override
+	public Program parse(Path file) throws IOException {
+		return parse(read(file));
+	}
+	
+	/**
+	 * Maps {@code file} into memory and decodes it from UTF-8
+	 */
+	static CharBuffer read(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer bytes = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+			return StandardCharsets.UTF_8.decode(bytes);
+		}
+	}
+	
+	private Program parse(Tokenizer t) {
 		try {
 			return parseProgram(t);
 		} catch (SyntaxError e) {
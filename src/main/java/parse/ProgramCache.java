@@ -0,0 +1,127 @@
+package parse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ast.Program;
+
+/**
+ * A cache of parsed critter programs, keyed by a hash of their normalized text, so that
+ * placing many critters with the same program parses it once. The programs it returns
+ * are shared and must not be modified. Once the cache holds {@code capacity} programs,
+ * the least recently used one is forgotten.
+ */
+public class ProgramCache {
+	private final int capacity;
+	private final Map<String, Program> programs;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a cache holding up to {@code capacity} programs
+	 */
+	public ProgramCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+		programs = new LinkedHashMap<String, Program>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Program> eldest) {
+				return size() > ProgramCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the program in {@code text}, parsing it only if no program with the same
+	 * normalized text is cached
+	 *
+	 * @return The shared parsed program, or null if the program contains a syntax error or
+	 *         is beyond the limits of {@link ParserFactory#getBoundedParser()}. Syntax
+	 *         errors are not cached.
+	 */
+	public Program parse(String text) {
+		String normal = normalize(text);
+		String key = hash(normal);
+		synchronized (this) {
+			Program p = programs.get(key);
+			if (p != null) {
+				hits++;
+				return p;
+			}
+			misses++;
+		}
+		// Parse outside the lock, keeping the first program if another thread raced us
+		Program p = ParserFactory.getBoundedParser().parse(normal);
+		if (p == null) {
+			return null;
+		}
+		synchronized (this) {
+			Program cached = programs.get(key);
+			if (cached != null) {
+				return cached;
+			}
+			programs.put(key, p);
+		}
+		return p;
+	}
+
+	/**
+	 * Returns the number of times a program was found in the cache
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of times a program had to be parsed
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of programs in the cache
+	 */
+	public synchronized int size() {
+		return programs.size();
+	}
+
+	/**
+	 * Returns {@code text} with line separators turned into newlines and whitespace at
+	 * the end of lines and of the text removed, none of which the parser sees
+	 */
+	static String normalize(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		for (String line : text.split("\r\n|\r|\n")) {
+			int end = line.length();
+			while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+				end--;
+			}
+			sb.append(line, 0, end).append('\n');
+		}
+		int end = sb.length();
+		while (end > 0 && sb.charAt(end - 1) == '\n') {
+			end--;
+		}
+		sb.setLength(end);
+		return sb.toString();
+	}
+
+	private static String hash(String text) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
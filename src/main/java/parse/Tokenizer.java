@@ -60,6 +60,15 @@ class Tokenizer implements Iterator<Token> {
         lineNo = 1;
     }
 
+    /**
+     * Create a Tokenizer for a subclass that reads its source in its own way,
+     * overriding {@code hasNext}, {@code next}, {@code peek} and {@code close}
+     */
+    Tokenizer() {
+        br = null;
+        buf = null;
+    }
+
     /**
      * Returns {@code true} if the iteration has more meaningful elements. (In
      * other words, returns {@code true} if {@link #next} would return a non-EOF
@@ -6,6 +6,7 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 
 import org.junit.Test;
 
@@ -20,6 +21,8 @@ import ast.TermExpr;
 import ast.TermExpr.Operator;
 import interpret.Interpreter;
 import interpret.InterpreterImpl;
+import interpret.OptimizedProgram;
+import interpret.ProgramOptimizer;
 import parse.Parser;
 import parse.ParserFactory;
 public class InterpreterTests {
@@ -42,4 +45,26 @@ public class InterpreterTests {
         
 	}
 
+	@Test
+	public void testOptimizer() {
+		Parser p = ParserFactory.getParser();
+		Program prog = p.parse(new StringReader(
+				"3 + 4 > 5 and mem[7] = 2 --> mem[8] := 2 * 1 wait;\n"
+				+ "nearby[0] > 0 and 1 = 0 --> eat;\n"
+				+ "1 < 2 or random[3] = 1 --> mem[9] := 3 / 0;\n"
+				+ "2 - 2 = 0 --> forward;\n"
+				+ "mem[7] = 1 --> eat;\n"));
+		String before = prog.toString();
+		OptimizedProgram opt = ProgramOptimizer.optimize(prog);
+		assertEquals(before, prog.toString());
+		Program o = opt.getProgram();
+		assertEquals(3, o.numberOfRules());
+		assertEquals("mem[7] = 2 --> mem[8] := 2\n               wait;", o.get(0).toString());
+		assertEquals("0 = 0 --> mem[9] := 0;", o.get(1).toString());
+		assertEquals("0 = 0 --> forward;", o.get(2).toString());
+		assertSame(prog.get(0), opt.getOrigin(0));
+		assertSame(prog.get(2), opt.getOrigin(1));
+		assertSame(prog.get(3), opt.getOrigin(2));
+	}
+
 }
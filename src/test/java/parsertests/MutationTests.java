@@ -4,6 +4,8 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.SplittableRandom;
+
 import org.junit.Test;
 import ast.DuplicateMutation;
 import ast.InsertMutation;
@@ -116,4 +118,32 @@ public class MutationTests {
 		}
 		
 	}
+	/*
+	 * Tests that a mutation leaves the original program alone and shares the
+	 * rules it did not change
+	 */
+	@Test
+	public void testMutationSharesUnchangedRules() {
+		InputStream in = ParserTest.class.getResourceAsStream("unmutated_critter.txt");
+		Reader r = new BufferedReader(new InputStreamReader(in));
+		Parser p = ParserFactory.getParser();
+		Program prog = p.parse(r);
+		String before = prog.toString();
+		int condition = 1 + prog.get(0).size() + 1;
+		Program mutated = prog.mutate(condition, new ReplaceMutation(new SplittableRandom(3)));
+		assertNotNull(mutated);
+		assertEquals(before, prog.toString());
+		assertSame(prog.get(0), mutated.get(0));
+		assertNotSame(prog.get(1), mutated.get(1));
+		for (int i = 2; i < prog.numberOfRules(); i++) {
+			assertSame(prog.get(i), mutated.get(i));
+		}
+		SplittableRandom rand = new SplittableRandom(11);
+		for (int i = 0; i < 50; i++) {
+			before = prog.toString();
+			Program next = prog.mutate(rand);
+			assertEquals(before, prog.toString());
+			prog = next;
+		}
+	}
 }
@@ -7,6 +7,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
 import org.junit.Test;
 import ast.Program;
 import parse.*;
@@ -98,5 +104,100 @@ public class ParserTest {
         System.out.println("\nSB1:\n" + sb1 + "\n ");
         System.out.println("\nSB2:\n" + sb2 + "\n ");
     }
+    
+    /**
+     * Tests that parsing from memory or from a mapped file gives the same
+     * programs as parsing through a reader, for valid and mutated programs and
+     * for text with syntax errors
+     */
+    @Test
+    public void testParseFromMemory() throws Exception {
+        Parser p = ParserFactory.getParser();
+        String[] files = {"unmutated_critter.txt", "example-rules.txt", "testCritter"};
+        for (String file : files) {
+            Path path = Paths.get(ParserTest.class.getResource(file).toURI());
+            String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            Program expected = p.parse(new StringReader(text));
+            assertEquals(expected.toString(), p.parse(CharBuffer.wrap(text)).toString());
+            assertEquals(expected.toString(), p.parse(path).toString());
+            SplittableRandom rand = new SplittableRandom(9);
+            Program mutated = expected;
+            for (int i = 0; i < 30; i++) {
+                mutated = mutated.mutate(rand);
+                String printed = mutated.toString();
+                assertEquals(p.parse(new StringReader(printed)).toString(), p.parse(printed).toString());
+            }
+        }
+        String[] invalid = {"mem[3] := 1", "1 = 1 --> wait", "ahead[1] < 2 --> eat; @",
+                "1 := 2 --> wait;", "2147483648 = 1 --> wait;", "foo = 1 --> wait;"};
+        for (String text : invalid) {
+            assertNull(p.parse(new StringReader(text)));
+            assertNull(p.parse(text));
+        }
+    }
+
+    /**
+     * Tests that the bounded parser builds the same programs as the recursive
+     * parser, rejects the same invalid ones, and rejects programs beyond its
+     * limits
+     */
+    @Test
+    public void testBoundedParser() throws Exception {
+        Parser p = ParserFactory.getParser();
+        Parser bounded = ParserFactory.getBoundedParser(1000, 100000);
+        String[] files = {"unmutated_critter.txt", "example-rules.txt", "testCritter"};
+        for (String file : files) {
+            Path path = Paths.get(ParserTest.class.getResource(file).toURI());
+            Program expected = p.parse(path);
+            assertEquals(expected.toString(), bounded.parse(path).toString());
+            SplittableRandom rand = new SplittableRandom(4);
+            Program mutated = expected;
+            for (int i = 0; i < 30; i++) {
+                mutated = mutated.mutate(rand);
+                String printed = mutated.toString();
+                assertEquals(p.parse(printed).toString(), bounded.parse(printed).toString());
+            }
+        }
+        String[] valid = {"{1 < 2 or {3 = 4}} and 5 > 6 or 7 != 8 --> wait;",
+                "nearby 3 + 4 > ahead[smell] * -(2 mod 5) --> mem[6] := random[9 - 1] tag[ENERGY];",
+                "{{1 = 1}} --> POSTURE := -3 / (2 + mem[mem[1]]) serve[4];"};
+        for (String text : valid) {
+            assertEquals(p.parse(text).toString(), bounded.parse(text).toString());
+        }
+        String[] invalid = {"mem[3] := 1", "{1 = 1 --> wait;", "1 = (2 --> wait;",
+                "1 = -x --> wait;", "1 = 1 --> wait eat;", "1 < 2 and --> wait;"};
+        for (String text : invalid) {
+            assertNull(p.parse(text));
+            assertNull(bounded.parse(text));
+        }
+        // Nested far deeper than the recursive parser can go. Such a program is too deep
+        // to print or run, which is what the default limits of getBoundedParser() are for.
+        String deep = nest("-(", "1", ")", 50000);
+        Program program = ParserFactory.getBoundedParser(100000, 1000000).parse("1 = " + deep + " --> wait;");
+        assertNotNull(program);
+        assertEquals(1, program.numberOfRules());
+        assertNull(bounded.parse("1 = " + deep + " --> wait;"));
+        assertNull(ParserFactory.getBoundedParser().parse("1 = " + deep + " --> wait;"));
+        assertNull(bounded.parse(nest("{", "1 = 1", "}", 1001) + " --> wait;"));
+        assertNotNull(bounded.parse(nest("{", "1 = 1", "}", 1000) + " --> wait;"));
+        StringBuilder wide = new StringBuilder("1 = 1");
+        for (int i = 0; i < 20000; i++) {
+            wide.append(" + 1");
+        }
+        assertNull(ParserFactory.getBoundedParser(100000, 40000).parse(wide + " --> wait;"));
+        assertNotNull(ParserFactory.getBoundedParser(100000, 50000).parse(wide + " --> wait;"));
+    }
+
+    private String nest(String open, String inner, String close, int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append(open);
+        }
+        sb.append(inner);
+        for (int i = 0; i < depth; i++) {
+            sb.append(close);
+        }
+        return sb.toString();
+    }
 
 }
@@ -0,0 +1,115 @@
+package parsertests;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ast.Program;
+import ast.ProgramCodec;
+import parse.Parser;
+import parse.ParserFactory;
+
+public class ProgramCodecTest {
+
+	/*
+	 * Tests that decoding an encoded program gives a program that prints the
+	 * same, for parsed programs and for programs mutated from them
+	 */
+	@Test
+	public void testRoundTrip() {
+		String[] files = {"unmutated_critter.txt", "example-rules.txt", "testCritter"};
+		for (String file : files) {
+			Program base = parse(file);
+			SplittableRandom rand = new SplittableRandom(12);
+			Program p = base;
+			for (int i = 0; i < 100; i++) {
+				byte[] bytes = ProgramCodec.encode(p);
+				Program decoded = ProgramCodec.decode(bytes);
+				assertEquals(p.toString(), decoded.toString());
+				assertEquals(p.numberOfRules(), decoded.numberOfRules());
+				assertTrue(Arrays.equals(bytes, ProgramCodec.encode(decoded)));
+				p = p.mutate(rand);
+			}
+		}
+		Program negative = ParserFactory.getParser().parse("-2147483647 < -1 --> mem[7] := 2147483647 tag[-3];");
+		assertEquals(negative.toString(), ProgramCodec.decode(ProgramCodec.encode(negative)).toString());
+		Program empty = ParserFactory.getParser().parse("");
+		assertEquals(0, ProgramCodec.decode(ProgramCodec.encode(empty)).numberOfRules());
+	}
+
+	/*
+	 * Tests that programs far deeper than the recursive parts of the AST can go are encoded
+	 * and decoded
+	 */
+	@Test
+	public void testDeep() {
+		StringBuilder sb = new StringBuilder("1 = ");
+		for (int i = 0; i < 100000; i++) {
+			sb.append("-(");
+		}
+		sb.append('1');
+		for (int i = 0; i < 100000; i++) {
+			sb.append(')');
+		}
+		Program p = ParserFactory.getBoundedParser(1000000, 1000000).parse(sb.append(" --> wait;"));
+		byte[] bytes = ProgramCodec.encode(p);
+		assertTrue(Arrays.equals(bytes, ProgramCodec.encode(ProgramCodec.decode(bytes))));
+	}
+
+	/*
+	 * Tests that the encoding is shorter than the program text
+	 */
+	@Test
+	public void testCompact() {
+		Program p = parse("unmutated_critter.txt");
+		assertTrue(ProgramCodec.encode(p).length * 2 < p.toString().length());
+	}
+
+	/*
+	 * Tests that bytes that do not encode a program are rejected
+	 */
+	@Test
+	public void testMalformed() {
+		byte[] bytes = ProgramCodec.encode(parse("example-rules.txt"));
+		for (int length = 0; length < bytes.length; length++) {
+			assertRejected(Arrays.copyOf(bytes, length));
+		}
+		byte[] version = bytes.clone();
+		version[ProgramCodec.MAGIC.length] = 2;
+		assertRejected(version);
+		byte[] longer = Arrays.copyOf(bytes, bytes.length + 1);
+		assertRejected(longer);
+		// A rule claiming more updates than there are nodes
+		assertRejected(new byte[] {'C', 'W', 'P', 1, (byte) 0xFC, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+		// A count of updates that overflows an int when added to
+		assertRejected(new byte[] {'C', 'W', 'P', 1, 0x01, (byte) 0xFC, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+		SplittableRandom rand = new SplittableRandom(3);
+		for (int i = 0; i < 1000; i++) {
+			byte[] corrupt = bytes.clone();
+			corrupt[ProgramCodec.MAGIC.length + 1 + rand.nextInt(bytes.length - ProgramCodec.MAGIC.length - 1)] = (byte) rand.nextInt(256);
+			try {
+				ProgramCodec.decode(corrupt);
+			} catch (IllegalArgumentException e) {
+				// Rejected, or else decoded to some other program
+			}
+		}
+	}
+
+	private void assertRejected(byte[] bytes) {
+		try {
+			ProgramCodec.decode(bytes);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private Program parse(String resource) {
+		Parser parser = ParserFactory.getParser();
+		return parser.parse(new BufferedReader(new InputStreamReader(
+				ProgramCodecTest.class.getResourceAsStream(resource))));
+	}
+}
@@ -0,0 +1,155 @@
+package parsertests;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ast.DuplicateMutation;
+import ast.InsertMutation;
+import ast.Mutation;
+import ast.Node;
+import ast.Program;
+import ast.RemoveMutation;
+import ast.ReplaceMutation;
+import ast.Rule;
+import ast.SwapMutation;
+import ast.TransformMutation;
+import parse.Parser;
+import parse.ParserFactory;
+
+public class SubtreeSizeTest {
+
+	/**
+	 * A way of making a mutation of one type
+	 */
+	private interface MutationType {
+		Mutation make(SplittableRandom rand);
+	}
+
+	@Test(timeout = 60000)
+	public void testRemove() {
+		assertSizesAfter(rand -> new RemoveMutation());
+	}
+
+	@Test(timeout = 60000)
+	public void testSwap() {
+		assertSizesAfter(SwapMutation::new);
+	}
+
+	@Test(timeout = 60000)
+	public void testReplace() {
+		assertSizesAfter(ReplaceMutation::new);
+	}
+
+	@Test(timeout = 60000)
+	public void testTransform() {
+		assertSizesAfter(TransformMutation::new);
+	}
+
+	@Test(timeout = 60000)
+	public void testInsert() {
+		assertSizesAfter(InsertMutation::new);
+	}
+
+	@Test(timeout = 60000)
+	public void testDuplicate() {
+		assertSizesAfter(DuplicateMutation::new);
+	}
+
+	/*
+	 * Tests that sizes and node indices stay right over a chain of random
+	 * mutations, and that the programs mutated from are left as they were
+	 */
+	@Test(timeout = 60000)
+	public void testRandomMutations() {
+		Program prog = parse();
+		SplittableRandom rand = new SplittableRandom(5);
+		for (int i = 0; i < 300; i++) {
+			Program next;
+			try {
+				next = prog.mutate(rand);
+			} catch (RuntimeException e) {
+				prog = parse();
+				continue;
+			}
+			assertConsistent(next);
+			assertConsistent(prog);
+			prog = next;
+		}
+	}
+
+	/**
+	 * Applies mutations of one type at random indices, one after the other,
+	 * checking every program along the way
+	 */
+	private void assertSizesAfter(MutationType type) {
+		Program prog = parse();
+		assertConsistent(prog);
+		SplittableRandom rand = new SplittableRandom(17);
+		for (int i = 0; i < 200; i++) {
+			Program next;
+			try {
+				next = prog.mutate(rand.nextInt(prog.size()), type.make(rand.split()));
+			} catch (RuntimeException e) {
+				prog = parse();
+				continue;
+			}
+			if (next == null) {
+				continue;
+			}
+			assertConsistent(next);
+			assertConsistent(prog);
+			prog = next;
+		}
+	}
+
+	/**
+	 * Checks that every node of {@code prog} is at exactly one index, that the nodes
+	 * below each node follow it in order, that rule sizes add up, and that the kept
+	 * text of the program and its rules is what printing them again gives
+	 */
+	private void assertConsistent(Program prog) {
+		int size = prog.size();
+		Set<Node> seen = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		for (int i = 0; i < size; i++) {
+			Node n = prog.nodeAt(i);
+			assertTrue(seen.add(n));
+			assertSame(n, n.nodeAt(0));
+			for (int k = 1; k < n.size(); k++) {
+				assertSame(n.nodeAt(k), prog.nodeAt(i + k));
+			}
+		}
+		int total = 1;
+		StringBuilder text = new StringBuilder();
+		for (int r = 0; r < prog.numberOfRules(); r++) {
+			Rule rule = prog.get(r);
+			String printed = rule.prettyPrint(new StringBuilder()).toString();
+			assertEquals(printed, rule.toString());
+			text.append(printed).append("\n\n");
+			int s = 1 + rule.getCondition().size();
+			for (int u = 0; u < rule.numberOfUpdates(); u++) {
+				s += rule.getUpdate(u).size();
+			}
+			if (rule.actionExists()) {
+				s += rule.getAction().size();
+			}
+			assertEquals(s, rule.size());
+			total += s;
+		}
+		assertEquals(total, size);
+		assertEquals(text.toString(), prog.toString());
+	}
+
+	private Program parse() {
+		InputStream in = ParserTest.class.getResourceAsStream("unmutated_critter.txt");
+		Parser p = ParserFactory.getParser();
+		return p.parse(new BufferedReader(new InputStreamReader(in)));
+	}
+}
@@ -0,0 +1,172 @@
+package parsertests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+
+import ast.Program;
+import ast.ProgramImpl;
+import ast.Rule;
+import console.Critter;
+import console.World;
+import console.DummyClassLibrary.AddCritter;
+import console.DummyClassLibrary.Description;
+import interpret.Bytecode;
+import interpret.CompiledRules;
+import interpret.InterpreterImpl;
+import interpret.JitCompiler;
+import interpret.ProgramOptimizer;
+import interpret.VirtualMachine;
+import parse.Parser;
+import parse.ParserFactory;
+
+public class VirtualMachineTest {
+
+	/*
+	 * Tests that the virtual machine has the same effects as the interpreter on
+	 * a set of mutated programs
+	 */
+	@Test
+	public void testSameAsInterpreter() {
+		assertSameAsInterpreter(c -> new VirtualMachine(c, false).interpretProgram(c.getProgram()));
+	}
+
+	/*
+	 * Tests that programs compiled to JVM classes have the same effects as the
+	 * interpreter on a set of mutated programs
+	 */
+	@Test
+	public void testJitSameAsInterpreter() {
+		assertSameAsInterpreter(c -> {
+			Rule[] rules = new Rule[c.getProgram().numberOfRules()];
+			for (int i = 0; i < rules.length; i++) {
+				rules[i] = c.getProgram().get(i);
+			}
+			CompiledRules code = JitCompiler.compile(rules);
+			assertNotNull(code);
+			return code.run(c, false, rules);
+		});
+	}
+
+	/*
+	 * Tests that optimized programs have the same effects as the programs they
+	 * came from, including the rule reported as fired
+	 */
+	@Test
+	public void testOptimizedSameAsInterpreter() {
+		assertSameAsInterpreter(c -> new InterpreterImpl(c).interpretProgram(ProgramOptimizer.optimize(c.getProgram())));
+	}
+
+	/*
+	 * Tests that a program shared by critters on several threads is compiled to
+	 * bytecode once, and that every thread sees that bytecode
+	 */
+	@Test(timeout = 60000)
+	public void testBytecodeSharedAcrossThreads() throws Exception {
+		ProgramImpl p = (ProgramImpl) parse("example-rules.txt");
+		Bytecode[] seen = new Bytecode[8];
+		CyclicBarrier barrier = new CyclicBarrier(seen.length);
+		Thread[] threads = new Thread[seen.length];
+		for (int i = 0; i < threads.length; i++) {
+			int k = i;
+			threads[i] = new Thread(() -> {
+				try {
+					barrier.await();
+				} catch (Exception e) {
+					return;
+				}
+				seen[k] = p.getBytecode();
+			});
+			threads[i].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertNotNull(seen[0]);
+		for (Bytecode b : seen) {
+			assertSame(seen[0], b);
+		}
+	}
+
+	/**
+	 * A way of running a critter's program once
+	 */
+	private interface Engine {
+		boolean run(Critter c);
+	}
+
+	private void assertSameAsInterpreter(Engine engine) {
+		List<Program> programs = new ArrayList<Program>();
+		Program base = parse("example-rules.txt");
+		programs.add(base);
+		programs.add(parse("testCritter"));
+		SplittableRandom rand = new SplittableRandom(7);
+		Program p = base;
+		while (programs.size() < 40) {
+			try {
+				p = p.mutate(rand);
+			} catch (RuntimeException e) {
+				p = base;
+				continue;
+			}
+			programs.add(p);
+		}
+		for (Program prog : programs) {
+			World a = world(prog);
+			World b = world(prog);
+			for (int round = 0; round < 20; round++) {
+				List<Critter> ca = new ArrayList<Critter>(a.getCritters());
+				List<Critter> cb = new ArrayList<Critter>(b.getCritters());
+				assertEquals(ca.size(), cb.size());
+				for (int i = 0; i < ca.size(); i++) {
+					Critter x = ca.get(i);
+					Critter y = cb.get(i);
+					if (x == null || x.isDead()) {
+						assertTrue(y == null || y.isDead());
+						continue;
+					}
+					boolean acted = true;
+					boolean failed = false;
+					try {
+						acted = new InterpreterImpl(x).interpretProgram(x.getProgram());
+					} catch (RuntimeException e) {
+						failed = true;
+					}
+					try {
+						assertEquals(acted, engine.run(y));
+						assertFalse(failed);
+					} catch (RuntimeException e) {
+						assertTrue(failed);
+					}
+					assertEquals(x.getCol(), y.getCol());
+					assertEquals(x.getRow(), y.getRow());
+					assertEquals(x.getDirection(), y.getDirection());
+					assertTrue(Arrays.equals(x.getMem(), y.getMem()));
+					assertEquals(String.valueOf(x.getLastRule()), String.valueOf(y.getLastRule()));
+				}
+			}
+		}
+	}
+
+	private Program parse(String resource) {
+		Parser parser = ParserFactory.getParser();
+		return parser.parse(new BufferedReader(new InputStreamReader(
+				VirtualMachineTest.class.getResourceAsStream(resource))));
+	}
+
+	private World world(Program prog) {
+		World w = new World(new Description("name vm\nsize 12 16\nseed 3\n"
+				+ "food 3 5 500\nfood 5 6 500\nrock 6 6\n"));
+		String program = prog.prettyPrint(new StringBuilder()).toString();
+		w.loadCritters(new AddCritter("vm", program, new int[] {9, 2, 2, 1, 800, 0, 0, 0, 0}, 8), 8);
+		return w;
+	}
+}
@@ -2,15 +2,57 @@ package parsertests;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.Test;
 
+import com.google.gson.Gson;
+
+import ast.Program;
+import ast.ProgramCodec;
+import ast.ProgramImpl;
+import ast.Rule;
 import console.Constants;
+import console.Critter;
+import console.Hex;
+import console.SimulationScheduler;
+import console.SpeciesRegistry;
+import console.SpeciesRegistry.Species;
 import console.World;
+import console.WorldSnapshot;
+import console.WorldSnapshot.CritterView;
+import console.WorldStateReader;
+import console.WorldStateWriter;
+import console.DummyClassLibrary.AddCritter;
+import console.DummyClassLibrary.CritterInfo;
+import console.DummyClassLibrary.DeadCritter;
+import console.DummyClassLibrary.Description;
+import console.DummyClassLibrary.FoodInfo;
+import console.DummyClassLibrary.NothingInfo;
+import console.DummyClassLibrary.Position;
+import console.DummyClassLibrary.RockInfo;
+import console.DummyClassLibrary.StateInfo;
+import console.DummyClassLibrary.Type;
+import console.DummyClassLibrary.WorldInfo;
+import console.DummyClassLibrary.WorldInfoForGet;
 import exceptions.SyntaxError;
+import parse.ParserFactory;
 
 public class WorldTests {
 	
@@ -85,4 +127,624 @@ public class WorldTests {
 		assertTrue(w.getName().equals("Default World"));
 		w.printMap();
 	}
+	
+	/*
+	 * Tests that two worlds with the same seed play out identically
+	 */
+	@Test
+	public void testSeedReproducible() {
+		World a = seededWorld();
+		World b = seededWorld();
+		a.advanceTime(60);
+		b.advanceTime(60);
+		List<Critter> ca = a.getCritters();
+		List<Critter> cb = b.getCritters();
+		assertEquals(ca.size(), cb.size());
+		for (int i = 0; i < ca.size(); i++) {
+			assertEquals(ca.get(i).getCol(), cb.get(i).getCol());
+			assertEquals(ca.get(i).getRow(), cb.get(i).getRow());
+			assertEquals(ca.get(i).getDirection(), cb.get(i).getDirection());
+			assertTrue(Arrays.equals(ca.get(i).getMem(), cb.get(i).getMem()));
+		}
+	}
+	
+	/*
+	 * Tests that parallel stepping does not depend on the number of threads
+	 */
+	@Test
+	public void testParallelStepDeterministic() {
+		World a = seededWorld();
+		World b = seededWorld();
+		a.setParallelism(1);
+		b.setParallelism(4);
+		a.advanceTime(60);
+		b.advanceTime(60);
+		List<Critter> ca = a.getCritters();
+		List<Critter> cb = b.getCritters();
+		assertEquals(ca.size(), cb.size());
+		for (int i = 0; i < ca.size(); i++) {
+			assertEquals(ca.get(i).getCol(), cb.get(i).getCol());
+			assertEquals(ca.get(i).getRow(), cb.get(i).getRow());
+			assertEquals(ca.get(i).getDirection(), cb.get(i).getDirection());
+			assertTrue(Arrays.equals(ca.get(i).getMem(), cb.get(i).getMem()));
+		}
+		a.setParallelism(0);
+		b.setParallelism(0);
+	}
+	
+	/*
+	 * Tests that a turn whose passes stop changing memory ends as if every pass
+	 * had been run
+	 */
+	@Test
+	public void testUnchangingPassesSkipped() {
+		String rules = "mem[7] < 5 --> mem[7] := mem[7] + 1;\n"
+				+ "mem[8] > 0 --> mem[8] := mem[8] - 1;\n"
+				+ "nearby[0] < -1 --> eat;\n";
+		// RANDOM keeps the same rules from being skipped
+		String drawing = "random[2] < 2 and " + rules.replace("\n", "\nrandom[2] < 2 and ");
+		drawing = drawing.substring(0, drawing.length() - "random[2] < 2 and ".length());
+		World a = passWorld(rules);
+		World b = passWorld(drawing);
+		a.advanceTime(3);
+		b.advanceTime(3);
+		List<Critter> ca = a.getCritters();
+		List<Critter> cb = b.getCritters();
+		assertEquals(ca.size(), cb.size());
+		for (int i = 0; i < ca.size(); i++) {
+			assertEquals(5, ca.get(i).getMem()[7]);
+			assertEquals(0, ca.get(i).getMem()[5]);
+			assertTrue(Arrays.equals(ca.get(i).getMem(), cb.get(i).getMem()));
+		}
+	}
+	
+	/*
+	 * Tests that critters with the same genome share one program
+	 */
+	@Test
+	public void testGenomesShared() {
+		World w = seededWorld();
+		List<Critter> critters = w.getCritters();
+		assertEquals(1, w.getGenomes().size());
+		for (Critter c : critters) {
+			assertSame(critters.get(0).getProgram(), c.getProgram());
+		}
+		w.advanceTime(60);
+		for (Critter a : w.getCritters()) {
+			for (Critter b : w.getCritters()) {
+				if (a != null && b != null && a.getAst().equals(b.getAst())) {
+					assertSame(a.getProgram(), b.getProgram());
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Tests that a program made from the rules of another, as mating does, leaves
+	 * those rules with their parent
+	 */
+	@Test
+	public void testSharedRulesKeepParents() {
+		World w = seededWorld();
+		Program shared = w.getCritters().get(0).getProgram();
+		String text = shared.toString();
+		List<Rule> rules = new ArrayList<Rule>();
+		for (int i = shared.numberOfRules() - 1; i >= 0; i--) {
+			rules.add(shared.get(i));
+		}
+		Program child = ProgramImpl.sharing(rules);
+		SplittableRandom rand = new SplittableRandom(3);
+		for (int i = 0; i < 50; i++) {
+			child = child.mutate(rand);
+		}
+		for (int i = 0; i < shared.numberOfRules(); i++) {
+			assertSame(shared, shared.get(i).getParent());
+		}
+		assertEquals(text, shared.toString());
+	}
+	
+	/*
+	 * Tests that genomes can be looked up by the hash of their program, which
+	 * changes with the program
+	 */
+	@Test
+	public void testGenomeLookup() {
+		World w = seededWorld();
+		Program p = w.getCritters().get(0).getProgram();
+		String hash = p.hash();
+		assertSame(p, w.getGenomes().lookup(hash));
+		assertEquals(hash, p.clone().hash());
+		assertNull(w.getGenomes().lookup(hash.substring(1)));
+		Program mutated = p.mutate(new SplittableRandom(3));
+		if (!mutated.toString().equals(p.toString())) {
+			assertNotEquals(hash, mutated.hash());
+			assertNull(w.getGenomes().lookup(mutated.hash()));
+		}
+	}
+	
+	/*
+	 * Tests that placing many critters with the same program parses it once,
+	 * whatever whitespace the program text ends its lines with
+	 */
+	@Test
+	public void testProgramParsedOnce() {
+		World w = seededWorld();
+		assertEquals(1, w.getPrograms().misses());
+		assertEquals(5, w.getPrograms().hits());
+		w.loadCritters(new AddCritter("seeded", "mem[7] = 0 --> mem[7] := random[100];  \r\n"
+				+ "ahead[1] < -1 --> eat;\r\n"
+				+ "random[3] = 0 --> left;\t\r\n"
+				+ "random[2] = 0 --> forward;\r\n"
+				+ "1 = 1 --> wait;\r\n\r\n", new int[] {9, 1, 1, 1, 500, 0, 0, 0, 0}, 3), 3);
+		assertEquals(1, w.getPrograms().misses());
+		assertEquals(1, w.getPrograms().size());
+		List<Critter> critters = w.getCritters();
+		assertEquals(9, critters.size());
+		for (Critter c : critters) {
+			assertSame(critters.get(0).getProgram(), c.getProgram());
+		}
+	}
+	
+	/*
+	 * Tests that critters of a registered species share its program without it
+	 * being parsed again, and that registering a species again gives the same id
+	 */
+	@Test
+	public void testRegisteredSpecies() {
+		SpeciesRegistry registry = new SpeciesRegistry();
+		int[] mem = {9, 1, 1, 1, 500, 0, 0, 0, 0};
+		Species s = registry.register("registered", "[ahead[1] < -1 --> eat;\n1 = 1 --> wait;\n]", mem);
+		assertEquals(1, s.id());
+		assertSame(s, registry.get(1));
+		assertSame(s, registry.register("registered", "ahead[1] < -1 --> eat; 1 = 1 --> wait;", mem));
+		assertNotSame(s, registry.register("renamed", "ahead[1] < -1 --> eat; 1 = 1 --> wait;", mem));
+		assertNull(registry.register("broken", "1 = --> wait;", mem));
+		assertNull(registry.register("small", "1 = 1 --> wait;", new int[] {3, 1, 1}));
+		assertNull(registry.get(3));
+		
+		World w = new World(new Description("name registered\nsize 10 14\nseed 5\n"));
+		Critter placed = w.placeCritter(s, new Position(3, 3));
+		assertNull(w.placeCritter(s, new Position(3, 3)));
+		Critter[] critters = w.loadCritters(s, 4);
+		assertEquals(0, w.getPrograms().misses());
+		for (Critter c : critters) {
+			assertSame(s.program(), c.getProgram());
+			assertEquals("registered", c.getSpecies());
+			assertTrue(Arrays.equals(mem, c.getMem()));
+		}
+		assertSame(s.program(), placed.getProgram());
+		assertEquals(5, w.getCritters().size());
+	}
+	
+	/*
+	 * Tests that programs nested deeper than the bounded parser allows are refused,
+	 * and that programs just within it can be used on a thread with the default stack
+	 */
+	@Test(timeout = 60000)
+	public void testProgramDepthLimit() throws InterruptedException {
+		int[] mem = {9, 1, 1, 1, 500, 0, 0, 0, 0};
+		SpeciesRegistry registry = new SpeciesRegistry();
+		assertNull(registry.register("deep", "1 = " + nest("-(", "1", ")", ParserFactory.MAX_DEPTH) + " --> wait;", mem));
+		World w = new World(new Description("name deep\nsize 6 6\nseed 1\n"));
+		assertNull(w.loadCritters(new AddCritter("deep", "1 = " + nest("-(", "1", ")", 50000) + " --> wait;", mem, 1), 1)[0]);
+		
+		// Programs at the limit can be used on a thread with the default stack size
+		String[] programs = {
+			"1 = " + nest("-(", "1", ")", ParserFactory.MAX_DEPTH - 10) + " --> mem[6] := 1;",
+			"1 = " + nest("mem[", "1", "]", ParserFactory.MAX_DEPTH - 10) + " --> mem[6] := 1;",
+			nest("{", "1 = 1", "}", ParserFactory.MAX_DEPTH - 10) + " --> wait;",
+		};
+		Throwable[] failure = new Throwable[1];
+		Thread t = new Thread(() -> {
+			try {
+				for (String text : programs) {
+					Species s = registry.register("deep", text, mem);
+					assertNotNull(s);
+					assertEquals(s.program().toString(), s.program().clone().toString());
+					assertTrue(s.program().size() > 0);
+					ProgramCodec.decode(ProgramCodec.encode(s.program()));
+					w.loadCritters(s, 1);
+					w.advanceTime(3);
+				}
+			} catch (Throwable e) {
+				failure[0] = e;
+			}
+		});
+		t.start();
+		t.join();
+		if (failure[0] != null) {
+			throw new AssertionError(failure[0]);
+		}
+	}
+	
+	/*
+	 * Tests that the scheduler takes several steps at once to run faster than it
+	 * wakes up, and stops when asked
+	 */
+	@Test(timeout = 60000)
+	public void testScheduler() throws Exception {
+		World w = new World(new Description("name scheduled\nsize 10 14\nseed 5\n"));
+		SimulationScheduler scheduler = new SimulationScheduler(w, 16);
+		scheduler.start();
+		assertTrue(scheduler.call(batch -> {
+			batch.run(5000);
+			return batch.isRunning();
+		}, 10, TimeUnit.SECONDS));
+		Thread.sleep(1500);
+		assertTrue(w.getRate() > 1000);
+		int steps = scheduler.call(batch -> {
+			batch.run(0);
+			return batch.world().getNumsteps();
+		}, 10, TimeUnit.SECONDS);
+		assertEquals(0, w.getRate(), 0);
+		// Waking every 10 ms, one step at a time would make at most 150 steps
+		assertTrue(steps > 1000);
+		Thread.sleep(50);
+		assertEquals(steps, w.getSnapshot().numSteps());
+		scheduler.shutdown();
+	}
+	
+	/*
+	 * Tests that a world run far faster than it can step still applies commands
+	 * promptly, and that rates above the most a world can be run at are refused
+	 */
+	@Test(timeout = 60000)
+	public void testOverloadedRate() throws Exception {
+		World w = new World(new Description("name busy\nsize 60 60\nseed 7\n"));
+		w.loadCritters(new AddCritter("busy", "1 = 1 --> wait;\n", new int[] {9, 1, 1, 1, 500, 0, 0, 0, 0}, 800), 800);
+		SimulationScheduler scheduler = new SimulationScheduler(w, 16);
+		scheduler.start();
+		try {
+			scheduler.call(batch -> {
+				batch.run(2 * SimulationScheduler.MAX_RATE);
+				return null;
+			}, 10, TimeUnit.SECONDS);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		scheduler.call(batch -> {
+			batch.run(SimulationScheduler.MAX_RATE);
+			return null;
+		}, 10, TimeUnit.SECONDS);
+		Thread.sleep(1500);
+		assertTrue(w.getRate() < SimulationScheduler.MAX_RATE);
+		long start = System.nanoTime();
+		assertFalse(scheduler.call(batch -> {
+			batch.run(0);
+			return batch.isRunning();
+		}, 10, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		scheduler.shutdown();
+	}
+	
+	/*
+	 * Tests that changes waiting together go to one new version, that each change is
+	 * published before its result is returned, and that a full queue turns changes away
+	 */
+	@Test(timeout = 60000)
+	public void testCommandQueue() throws Exception {
+		World w = seededWorld();
+		SimulationScheduler scheduler = new SimulationScheduler(w, 4);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Object> blocker = scheduler.submit(batch -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		scheduler.start();
+		started.await();
+		int version = w.getVersion();
+		List<Future<Integer>> placed = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 3; i++) {
+			int col = 2 + 2 * i;
+			placed.add(scheduler.submit(batch -> {
+				batch.world().getHex(col, col).setFood(100);
+				batch.changed();
+				return batch.world().getSnapshot().version();
+			}));
+		}
+		Future<Object> failing = scheduler.submit(batch -> {
+			throw new IllegalStateException();
+		});
+		try {
+			scheduler.submit(batch -> null);
+			fail();
+		} catch (RejectedExecutionException e) {
+			// The queue holds four commands
+		}
+		release.countDown();
+		assertNull(blocker.get());
+		for (Future<Integer> f : placed) {
+			// Applied in the batch after the first command
+			assertEquals(version, (int) f.get());
+		}
+		try {
+			failing.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(version + 1, w.getVersion());
+		assertEquals(100, w.getSnapshot().contents(4, 4));
+		assertEquals(version + 1, w.getSnapshot().version());
+		scheduler.shutdown();
+	}
+	
+	/*
+	 * Tests that a command that throws an error leaves the simulation thread running,
+	 * and that a command not started in time is withdrawn
+	 */
+	@Test(timeout = 60000)
+	public void testCommandFailures() throws Exception {
+		World w = seededWorld();
+		SimulationScheduler scheduler = new SimulationScheduler(w, 8);
+		scheduler.start();
+		Future<Object> overflow = scheduler.submit(batch -> {
+			throw new StackOverflowError();
+		});
+		try {
+			overflow.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof StackOverflowError);
+		}
+		// The thread survives the error
+		assertEquals(w.getVersion(), (int) scheduler.call(batch -> batch.world().getVersion(), 10, TimeUnit.SECONDS));
+		
+		CountDownLatch release = new CountDownLatch(1);
+		scheduler.submit(batch -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		boolean[] applied = new boolean[1];
+		try {
+			scheduler.call(batch -> applied[0] = true, 100, TimeUnit.MILLISECONDS);
+			fail();
+		} catch (TimeoutException e) {
+			// Withdrawn while the first command blocks the thread
+		}
+		release.countDown();
+		assertTrue(scheduler.call(batch -> true, 10, TimeUnit.SECONDS));
+		assertFalse(applied[0]);
+		scheduler.shutdown();
+	}
+	
+	/*
+	 * Tests that a replacing world is published before readers can see it
+	 */
+	@Test(timeout = 60000)
+	public void testReplaceWorld() throws Exception {
+		World w = seededWorld();
+		SimulationScheduler scheduler = new SimulationScheduler(w, 8);
+		scheduler.start();
+		World replacement = new World(new Description("name replacement\nsize 8 10\nseed 3\n"));
+		int version = scheduler.call(batch -> {
+			batch.replaceWorld(replacement);
+			// Readers can see the new world before the batch ends
+			assertNotNull(scheduler.world().getSnapshot());
+			return batch.world().getVersion();
+		}, 10, TimeUnit.SECONDS);
+		assertSame(replacement, scheduler.world());
+		WorldSnapshot s = scheduler.world().getSnapshot();
+		assertNotNull(s);
+		assertEquals("replacement", s.name());
+		assertEquals(version, s.version());
+		scheduler.shutdown();
+	}
+	
+	/*
+	 * Tests that published snapshots match the world as it was when they were
+	 * published, and stay that way as the world goes on
+	 */
+	@Test
+	public void testSnapshots() {
+		World w = seededWorld();
+		assertNull(w.getSnapshot());
+		w.publish();
+		WorldSnapshot first = w.getSnapshot();
+		assertMatches(w, first);
+		int[] mem = first.critters().get(0).mem();
+		for (int i = 0; i < 20; i++) {
+			w.advanceTime(3);
+			assertMatches(w, w.getSnapshot());
+		}
+		assertNotSame(first, w.getSnapshot());
+		assertEquals(0, first.version());
+		assertTrue(Arrays.equals(mem, first.critters().get(0).mem()));
+		first.critters().get(0).mem()[3] = -1;
+		assertTrue(Arrays.equals(mem, first.critters().get(0).mem()));
+	}
+	
+	@Test
+	public void testWorldJson() throws IOException {
+		World w = seededWorld();
+		w.getCritters().get(0).setSessionId(7);
+		w.publish();
+		int middle = 0;
+		for (int i = 0; i < 10; i++) {
+			w.advanceTime(5);
+			if (i == 4) {
+				middle = w.getVersion();
+			}
+		}
+		WorldSnapshot s = w.getSnapshot();
+		int[][] requests = {
+			{0, 0, s.rows(), 0, s.columns()},
+			{middle, 0, s.rows(), 0, s.columns()},
+			{middle, 4, 20, 3, 11},
+		};
+		for (int[] r : requests) {
+			for (int sessionId : new int[] {7, 8}) {
+				for (boolean admin : new boolean[] {false, true}) {
+					for (boolean inline : new boolean[] {false, true}) {
+						// Rates that print with more digits as a double than as a float, which
+						// are written widened to a double as before
+						for (float rate : new float[] {12.5f, 0.1f, 29.97f}) {
+							StringWriter out = new StringWriter();
+							new WorldStateWriter(s, sessionId, admin, inline).write(out, r[0], rate, r[1], r[2], r[3], r[4]);
+							assertEquals(worldInfoJson(s, sessionId, admin, inline, r[0], rate, r[1], r[2], r[3], r[4]),
+									out.toString());
+						}
+					}
+				}
+			}
+		}
+		StringWriter out = new StringWriter();
+		new WorldStateWriter(s, 7, false, false).write(out, 0, 0.1f, 0, s.rows(), 0, s.columns());
+		assertTrue(out.toString().contains("\"rate\":0.10000000149011612,"));
+	}
+	
+	@Test
+	public void testBinaryWorld() throws IOException {
+		World w = seededWorld();
+		w.getCritters().get(0).setSessionId(7);
+		w.publish();
+		w.advanceTime(20);
+		int middle = w.getVersion();
+		w.advanceTime(30);
+		WorldSnapshot s = w.getSnapshot();
+		int[][] requests = {
+			{0, 0, s.rows(), 0, s.columns()},
+			{middle, 0, s.rows(), 0, s.columns()},
+			{middle, 4, 20, 3, 11},
+		};
+		Gson gson = new Gson();
+		for (int[] r : requests) {
+			for (int sessionId : new int[] {7, 8}) {
+				for (boolean inline : new boolean[] {false, true}) {
+					for (float rate : new float[] {12.5f, 0.1f}) {
+						WorldStateWriter writer = new WorldStateWriter(s, sessionId, false, inline);
+						StringWriter json = new StringWriter();
+						writer.write(json, r[0], rate, r[1], r[2], r[3], r[4]);
+						ByteArrayOutputStream binary = new ByteArrayOutputStream();
+						writer.writeBinary(binary, r[0], rate, r[1], r[2], r[3], r[4]);
+						assertTrue(binary.size() < json.toString().length());
+						
+						WorldInfoForGet read = WorldStateReader.read(new ByteArrayInputStream(binary.toByteArray()));
+						assertEquals(gson.toJson(gson.fromJson(json.toString(), WorldInfoForGet.class)), gson.toJson(read));
+						assertEquals(rate, read.getRate(), 0);
+					}
+				}
+			}
+		}
+		byte[] truncated = new byte[] {'C', 'W', 'W', 1, 2};
+		try {
+			WorldStateReader.read(new ByteArrayInputStream(truncated));
+			fail();
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+	
+	/**
+	 * Returns the JSON that get("/world") wrote before it was streamed
+	 */
+	private String worldInfoJson(WorldSnapshot s, int sessionId, boolean admin, boolean inline,
+			int updateSince, float rate, int fromRow, int toRow, int fromCol, int toCol) {
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for (DeadCritter d : s.deadCritters()) {
+			if (d.timeOfDeath() > updateSince)
+				ids.add(d.id());
+		}
+		ArrayList<StateInfo> state = new ArrayList<StateInfo>();
+		for (int i = fromCol; i < toCol; i++) {
+			int strtrow = (i + 1) / 2;
+			for (int j = strtrow; j < strtrow + s.height() && j < toRow; j++) {
+				if (s.lastUpdated(i, j) <= updateSince) {
+					continue;
+				}
+				int contents = s.contents(i, j);
+				if (contents == WorldSnapshot.ROCK) {
+					state.add(new RockInfo(j, i));
+				} else if (contents > 0) {
+					state.add(new FoodInfo(j, i, contents));
+				} else if (contents == WorldSnapshot.CRITTER) {
+					CritterView c = s.critterAt(i, j);
+					if (admin || sessionId == c.sessionId()) {
+						state.add(new CritterInfo(c.id(), c.species(), c.row(), c.col(), c.direction(),
+								c.mem(), c.program(), c.lastRule(), inline, Type.critter));
+					} else {
+						state.add(new CritterInfo(c.id(), c.species(), c.row(), c.col(), c.direction(),
+								c.mem(), Type.critter));
+					}
+				} else if (updateSince > 0) {
+					state.add(new NothingInfo(j, i));
+				}
+			}
+		}
+		return new Gson().toJson(new WorldInfo(s.numSteps(), s.version() + 1, updateSince, rate, s.name(),
+				s.critters().size(), s.rows(), s.columns(), ids, state));
+	}
+	
+	private void assertMatches(World w, WorldSnapshot s) {
+		assertEquals(w.getVersion(), s.version());
+		assertEquals(w.getNumsteps(), s.numSteps());
+		assertEquals(w.getDeadCritters().size(), s.deadCritters().size());
+		int living = 0;
+		for (Critter c : w.getCritters()) {
+			if (c == null) {
+				continue;
+			}
+			living++;
+			CritterView v = s.critter(c.getId());
+			assertSame(v, s.critterAt(c.getCol(), c.getRow()));
+			assertEquals(c.getDirection(), v.direction());
+			assertTrue(Arrays.equals(c.getMem(), v.mem()));
+			assertSame(c.getProgram(), v.program());
+		}
+		assertEquals(living, s.critters().size());
+		for (int col = 0; col < w.getColumns(); col++) {
+			int strtrow = (col + 1) / 2;
+			for (int row = strtrow; row < strtrow + w.getHeight(); row++) {
+				Hex h = w.getHex(col, row);
+				assertTrue(s.hasHex(col, row));
+				assertEquals(h.getLastUpdated(), s.lastUpdated(col, row));
+				int contents = h.hasRock() ? WorldSnapshot.ROCK : h.hasFood() ? h.getFood()
+						: h.hasCritter() ? WorldSnapshot.CRITTER : 0;
+				assertEquals(contents, s.contents(col, row));
+			}
+		}
+		assertFalse(s.hasHex(-1, 0));
+		assertFalse(s.hasHex(w.getColumns(), 0));
+	}
+	
+	private World passWorld(String program) {
+		World w = new World(new Description("name passes\nsize 10 14\nseed 5\n"));
+		w.loadCritters(new AddCritter("passes", program, new int[] {9, 1, 1, 2, 300, 0, 0, 0, 4}, 4), 4);
+		return w;
+	}
+	
+	private String nest(String open, String inner, String close, int depth) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			sb.append(open);
+		}
+		sb.append(inner);
+		for (int i = 0; i < depth; i++) {
+			sb.append(close);
+		}
+		return sb.toString();
+	}
+	
+	private World seededWorld() {
+		World w = new World(new Description("name seeded\nsize 20 30\nseed 42\n"
+				+ "food 3 5 500\nfood 10 12 500\nrock 6 6\n"));
+		String program = "mem[7] = 0 --> mem[7] := random[100];\n"
+				+ "ahead[1] < -1 --> eat;\n"
+				+ "random[3] = 0 --> left;\n"
+				+ "random[2] = 0 --> forward;\n"
+				+ "1 = 1 --> wait;\n";
+		w.loadCritters(new AddCritter("seeded", program, new int[] {9, 1, 1, 1, 500, 0, 0, 0, 0}, 6), 6);
+		return w;
+	}
 }